@@ -0,0 +1,49 @@
+package se.ltu.kitting.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import se.ltu.kitting.api.PlanningRequest;
+import se.ltu.kitting.api.PlanningResponse;
+import se.ltu.kitting.api.json.JsonIO;
+import se.ltu.kitting.model.Kit;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.WagonHint;
+
+/**
+ * Microbenchmarks for parsing requests and serializing responses.
+ * The request and response are made from the same layouts as the scoring
+ * benchmarks, so they scale with the number of parts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+  private String requestJson;
+  private PlanningResponse response;
+
+  @Setup(Level.Trial)
+  public void setup(Layouts state) {
+    final Layout layout = state.layout;
+    final var request = new PlanningRequest(new Kit("kit", "chassis"), layout.getParts(), new WagonHint(layout.getWagon(), 1));
+    requestJson = JsonIO.toJson(request);
+    // Pretend the layout is feasible, or the response would not include it.
+    layout.setScore(HardSoftLongScore.ZERO);
+    response = PlanningResponse.response(request, layout);
+  }
+
+  @Benchmark
+  public PlanningRequest request() {
+    return JsonIO.request(requestJson);
+  }
+
+  @Benchmark
+  public String toJson() {
+    return JsonIO.toJson(response);
+  }
+
+}
@@ -0,0 +1,33 @@
+package se.ltu.kitting.jmh;
+
+import java.util.Random;
+import org.openjdk.jmh.annotations.*;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.Part;
+import se.ltu.kitting.test.AllocationBenchmark;
+
+/**
+ * Benchmark state holding a layout with randomly placed parts.
+ * The layout is generated with a fixed seed (using
+ * {@link AllocationBenchmark#randomLayout(int, Random)}, which uses
+ * {@link se.ltu.kitting.test.LayoutBuilder}), so every run measures exactly
+ * the same layout for a given number of parts.
+ */
+@State(Scope.Thread)
+public class Layouts {
+
+  @Param({"10", "30", "60", "120"})
+  public int partCount;
+
+  public Layout layout;
+  public Part p1;
+  public Part p2;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    layout = AllocationBenchmark.randomLayout(partCount, new Random(1));
+    p1 = layout.getParts().get(0);
+    p2 = layout.getParts().get(1);
+  }
+
+}
@@ -0,0 +1,46 @@
+package se.ltu.kitting.jmh;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import se.ltu.kitting.model.Dimensions;
+import se.ltu.kitting.model.PositionProvider;
+import se.ltu.kitting.model.Wagon;
+import se.ltu.kitting.test.LayoutBuilder;
+
+/**
+ * Microbenchmark for generating the positions of a wagon.
+ * Uses a wagon with one to three 1200x800 surfaces and the step sizes used
+ * by the resolution phases in unified.xml.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PositionBenchmark {
+
+  @Param({"1", "3"})
+  public int surfaceCount;
+
+  @Param({"1", "5", "10", "50"})
+  public int stepSize;
+
+  private Wagon wagon;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    final var builder = LayoutBuilder.builder();
+    for (int i = 0; i < surfaceCount; i++) {
+      builder.surface(1200, 800, 300);
+    }
+    wagon = builder.build().getWagon();
+  }
+
+  @Benchmark
+  public List<Dimensions> positions() {
+    return PositionProvider.positions(wagon, stepSize, false);
+  }
+
+}
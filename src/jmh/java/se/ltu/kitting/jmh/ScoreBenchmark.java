@@ -0,0 +1,41 @@
+package se.ltu.kitting.jmh;
+
+import java.util.concurrent.TimeUnit;
+import ch.rfin.util.Pair;
+import org.openjdk.jmh.annotations.*;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import se.ltu.kitting.model.Dimensions;
+import se.ltu.kitting.score.HardScore;
+import se.ltu.kitting.score.ScoreCalculator;
+
+/**
+ * Microbenchmarks for the scoring and geometry hot paths.
+ * Run with {@code -prof gc} to also get the allocation rate per operation
+ * ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreBenchmark {
+
+  private final ScoreCalculator calculator = new ScoreCalculator();
+
+  @Benchmark
+  public HardSoftLongScore calculateScore(Layouts state) {
+    return calculator.calculateScore(state.layout);
+  }
+
+  @Benchmark
+  public boolean partsOverlap(Layouts state) {
+    return HardScore.partsOverlap(state.p1, state.p2);
+  }
+
+  @Benchmark
+  public Pair<Dimensions,Dimensions> currentRegion(Layouts state) {
+    return state.p1.currentRegion();
+  }
+
+}
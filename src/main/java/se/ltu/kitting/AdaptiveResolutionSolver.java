@@ -0,0 +1,257 @@
+package se.ltu.kitting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.phase.PhaseConfig;
+import org.optaplanner.core.config.phase.custom.CustomPhaseConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.optaplanner.core.impl.phase.event.PhaseLifecycleListenerAdapter;
+import org.optaplanner.core.impl.solver.AbstractSolver;
+import org.optaplanner.core.impl.solver.scope.SolverScope;
+import se.ltu.kitting.algo.ResolutionChange;
+import se.ltu.kitting.algo.ResolutionSchedule;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.util.SolveControl;
+import se.ltu.kitting.util.SolverFactories;
+import se.ltu.kitting.util.SolverTelemetry;
+import se.ltu.kitting.util.Util;
+
+/**
+ * Solves a layout coarse-to-fine, refining the position step size only when
+ * the search stops improving at the current one, instead of following the
+ * fixed schedule of {@link ResolutionChange} phases in a config.
+ * <p>
+ * The step sizes come from a {@link ResolutionSchedule} computed from the
+ * surfaces of the wagon and the number of parts. The layout is first
+ * constructed (using the phases before the first local search in the
+ * config, except {@link ResolutionChange}) and searched at the coarsest
+ * step size. Then, each round runs the local search of the config at the
+ * next step size, until it has not improved for a while (the unimproved
+ * termination of that local search, without its time limits).
+ * <p>
+ * As soon as the layout is feasible, the remaining coarse step sizes are
+ * skipped and the search continues at step size 1. Once it stops improving
+ * at step size 1, the solver stops if the layout is feasible, and otherwise
+ * starts over from the coarsest step size (with a new random seed) until
+ * the time limit of the config runs out. Solving always stops when the best score limit of
+ * the config is reached. So easy kits finish as soon as they are solved,
+ * and hard kits get the whole time limit.
+ */
+public class AdaptiveResolutionSolver {
+
+  /** Unimproved time limit of each round, unless the config has one. */
+  public static final long defaultUnimprovedMillis = 500;
+
+  /** Terminates rounds that are still running when the time is up. */
+  private static final ScheduledExecutorService deadlines =
+    Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread thread = new Thread(r, "AdaptiveResolutionSolver");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+  private final long timeLimitMillis;
+  /** Construction followed by local search. */
+  private final SolverConfig firstRound;
+  /** Local search only. */
+  private final SolverConfig round;
+  // Configs of the rounds with other random seeds, by attempt.
+  private final Map<Integer,SolverConfig> retries = new ConcurrentHashMap<>();
+
+  public AdaptiveResolutionSolver(final SolverConfig config) {
+    final List<PhaseConfig> phases = config.getPhaseConfigList();
+    final int search = phases == null ? -1 : indexOfLocalSearch(phases);
+    if (search < 0) {
+      throw new IllegalArgumentException("The config has no local search phase");
+    }
+    final List<PhaseConfig> construction = new ArrayList<>();
+    for (final PhaseConfig phase : phases.subList(0, search)) {
+      if (!isResolutionChange(phase)) {
+        construction.add((PhaseConfig) phase.copyConfig());
+      }
+    }
+    final LocalSearchPhaseConfig localSearch = roundSearch((LocalSearchPhaseConfig) phases.get(search));
+    final TerminationConfig termination = config.getTerminationConfig();
+    final Long limit = termination == null ? null : termination.calculateTimeMillisSpentLimit();
+    this.timeLimitMillis = limit == null ? Long.MAX_VALUE : limit;
+    construction.add(localSearch);
+    this.firstRound = roundConfig(config, construction);
+    this.round = roundConfig(config, List.of(localSearch));
+  }
+
+  public static AdaptiveResolutionSolver fromXmlResource(final String xml) {
+    return new AdaptiveResolutionSolver(SolverFactories.config(xml));
+  }
+
+  /** Whether the config has the local search this solver needs. */
+  public static boolean supports(final SolverConfig config) {
+    final List<PhaseConfig> phases = config.getPhaseConfigList();
+    return phases != null && indexOfLocalSearch(phases) >= 0;
+  }
+
+  private static int indexOfLocalSearch(final List<PhaseConfig> phases) {
+    for (int i = 0; i < phases.size(); i++) {
+      if (phases.get(i) instanceof LocalSearchPhaseConfig) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isResolutionChange(final PhaseConfig phase) {
+    if (!(phase instanceof CustomPhaseConfig)) {
+      return false;
+    }
+    final var classes = ((CustomPhaseConfig) phase).getCustomPhaseCommandClassList();
+    return classes != null && classes.contains(ResolutionChange.class);
+  }
+
+  // Keeps the unimproved termination, but not the time limits, since the
+  // time a round needs depends on the kit.
+  private static LocalSearchPhaseConfig roundSearch(final LocalSearchPhaseConfig template) {
+    final LocalSearchPhaseConfig search = template.copyConfig();
+    final TerminationConfig original = template.getTerminationConfig();
+    final TerminationConfig termination = new TerminationConfig();
+    final Long unimproved = original == null ? null : original.calculateUnimprovedTimeMillisSpentLimit();
+    termination.setUnimprovedMillisecondsSpentLimit(unimproved == null ? defaultUnimprovedMillis : unimproved);
+    if (original != null) {
+      termination.setUnimprovedScoreDifferenceThreshold(original.getUnimprovedScoreDifferenceThreshold());
+    }
+    search.setTerminationConfig(termination);
+    return search;
+  }
+
+  // The time limit is enforced by the solver (see solveRound), so only the
+  // best score limit is kept.
+  private static SolverConfig roundConfig(final SolverConfig config, final List<PhaseConfig> phases) {
+    final SolverConfig result = config.copyConfig();
+    final TerminationConfig termination = new TerminationConfig();
+    if (config.getTerminationConfig() != null) {
+      termination.setBestScoreLimit(config.getTerminationConfig().getBestScoreLimit());
+    }
+    result.setTerminationConfig(termination);
+    final List<PhaseConfig> copies = new ArrayList<>();
+    for (final PhaseConfig phase : phases) {
+      copies.add((PhaseConfig) phase.copyConfig());
+    }
+    result.setPhaseConfigList(copies);
+    return result;
+  }
+
+  // A round with a different random seed, so that starting over does not
+  // just repeat the previous rounds.
+  private SolverConfig retryConfig(final int attempt) {
+    if (attempt == 0) {
+      return round;
+    }
+    return retries.computeIfAbsent(attempt, a -> {
+      final SolverConfig result = round.copyConfig();
+      final long seed = round.getRandomSeed() == null ? 0L : round.getRandomSeed();
+      result.setRandomSeed(seed + a);
+      return result;
+    });
+  }
+
+  public long timeLimitMillis() {
+    return timeLimitMillis;
+  }
+
+  /** Solve (a copy of) the layout. The layout itself is not modified. */
+  public Layout solve(final Layout unsolved) {
+    return solve(unsolved, null);
+  }
+
+  /**
+   * Solve (a copy of) the layout, recording the phases of every round in
+   * the telemetry (if not null).
+   */
+  public Layout solve(final Layout unsolved, final SolverTelemetry telemetry) {
+    return solve(unsolved, telemetry, null);
+  }
+
+  /**
+   * Solve (a copy of) the layout, recording the phases of every round in
+   * the telemetry and attaching the solver of every round to the control
+   * (each if not null). No more rounds are started once the control has
+   * been terminated.
+   */
+  public Layout solve(final Layout unsolved, final SolverTelemetry telemetry, final SolveControl control) {
+    final long deadline = deadline(System.currentTimeMillis());
+    final ResolutionSchedule schedule = ResolutionSchedule.forLayout(unsolved);
+    int step = schedule.coarsest();
+    Layout layout = solveRound(Layout.copyOf(unsolved), step, firstRound, deadline, telemetry, control);
+    int attempt = 0;
+    while (!Util.optimalScore(layout.getScore()) && System.currentTimeMillis() < deadline
+        && (control == null || !control.isTerminated())) {
+      final boolean feasible = layout.isFeasibleSolution();
+      if (step == 1) {
+        if (feasible) {
+          break;  // Stopped improving at the finest step size.
+        }
+        attempt++;
+        step = schedule.coarsest();
+      } else {
+        step = feasible ? 1 : schedule.next(step);
+      }
+      layout = solveRound(layout, step, retryConfig(attempt), deadline, telemetry, control);
+    }
+    return layout;
+  }
+
+  private long deadline(final long now) {
+    return timeLimitMillis > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + timeLimitMillis;
+  }
+
+  private static Layout solveRound(final Layout layout, final int step, final SolverConfig config,
+      final long deadline, final SolverTelemetry telemetry, final SolveControl control) {
+    layout.setPositionStepSize(step);
+    final Solver<Layout> solver = SolverFactories.solver(config);
+    if (telemetry != null) {
+      telemetry.attachTo(solver, config);
+    }
+    if (control != null) {
+      control.attach(solver);
+    }
+    if (step > 1) {
+      // Skip the rest of the coarse step sizes.
+      solver.addEventListener(event -> {
+        if (event.getNewBestSolution().isFeasibleSolution()) {
+          solver.terminateEarly();
+        }
+      });
+    }
+    ScheduledFuture<?> timeout = null;
+    if (deadline != Long.MAX_VALUE) {
+      // A solver ignores termination before it has started, so a timeout
+      // that runs before then (such as when almost no time is left) is
+      // repeated when it starts. Otherwise the round would run unbounded.
+      ((AbstractSolver<Layout>) solver).addPhaseLifecycleListener(new PhaseLifecycleListenerAdapter<>() {
+        @Override
+        public void solvingStarted(final SolverScope<Layout> solverScope) {
+          if (System.currentTimeMillis() >= deadline) {
+            solver.terminateEarly();
+          }
+        }
+      });
+      final long remaining = Math.max(deadline - System.currentTimeMillis(), 0);
+      timeout = deadlines.schedule(() -> { solver.terminateEarly(); }, remaining, TimeUnit.MILLISECONDS);
+    }
+    try {
+      return solver.solve(layout);
+    } finally {
+      if (timeout != null) {
+        timeout.cancel(false);
+      }
+    }
+  }
+
+}
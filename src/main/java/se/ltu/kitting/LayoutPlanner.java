@@ -1,12 +1,22 @@
 package se.ltu.kitting;
 
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.file.Paths;
 import se.ltu.kitting.test.SearchSpace;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Map;
-import org.optaplanner.core.api.solver.SolverFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import se.ltu.kitting.api.PlanningRequest;
 import se.ltu.kitting.api.PlanningResponse;
 import se.ltu.kitting.api.Message;
@@ -15,6 +25,17 @@ import se.ltu.kitting.model.Layout;
 import se.ltu.kitting.model.Part;
 import se.ltu.kitting.model.Dimensions;
 import se.ltu.kitting.Preprocess;
+import se.ltu.kitting.cache.CachedSolution;
+import se.ltu.kitting.cache.KitFingerprint;
+import se.ltu.kitting.cache.RecentSolutions;
+import se.ltu.kitting.cache.SolutionCache;
+import se.ltu.kitting.cache.SolutionStore;
+import se.ltu.kitting.util.SolveControl;
+import se.ltu.kitting.util.SolverFactories;
+import se.ltu.kitting.util.SolverTelemetry;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.config.solver.SolverConfig;
+import io.micrometer.core.instrument.Metrics;
 import ch.rfin.util.Pair;
 
 import static ch.rfin.util.Pair.pair;
@@ -25,19 +46,151 @@ import static ch.rfin.util.Pair.pair;
  */
 public class LayoutPlanner {
 
+  /** The solver config used for requests. */
+  public static final String defaultConfig = "unified.xml";
+
+  /**
+   * Number of solvers to run concurrently for each request
+   * (system property {@code kitting.starts}, default 1).
+   * @see MultiStartSolver
+   */
+  public static final int starts = Integer.getInteger("kitting.starts", 1);
+
+  /**
+   * Whether single-start solves refine the position step size adaptively
+   * (system property {@code kitting.adaptiveResolution}, default true)
+   * rather than following the fixed schedule of the config.
+   * @see AdaptiveResolutionSolver
+   */
+  public static final boolean adaptiveResolution =
+    Boolean.parseBoolean(System.getProperty("kitting.adaptiveResolution", "true"));
+
+  /**
+   * Whether the telemetry of each solve is also printed
+   * (system property {@code kitting.verboseTelemetry}, default false).
+   * It is always published as metrics.
+   * @see SolverTelemetry
+   */
+  public static final boolean verboseTelemetry = Boolean.getBoolean("kitting.verboseTelemetry");
+
+  private static final Map<String,AdaptiveResolutionSolver> adaptiveSolvers = new ConcurrentHashMap<>();
+  private static final Map<String,MultiStartSolver> multiStartSolvers = new ConcurrentHashMap<>();
+
+  /**
+   * Number of requests in a batch to solve concurrently
+   * (system property {@code kitting.batchWorkers}, default: number of
+   * processors). Shared by all batches.
+   */
+  public static final int batchWorkers =
+    Integer.getInteger("kitting.batchWorkers", Runtime.getRuntime().availableProcessors());
+
+  private static final ExecutorService batchPool = Executors.newFixedThreadPool(batchWorkers, r -> {
+    final Thread thread = new Thread(r, "LayoutPlanner-batch");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Solutions of earlier requests, shared by all requests. Max number of
+   * solutions: system property {@code kitting.solutionCacheSize}
+   * (default {@value SolutionCache#defaultCapacity}).
+   */
+  private static final SolutionCache solutionCache =
+    new SolutionCache(Integer.getInteger("kitting.solutionCacheSize", SolutionCache.defaultCapacity));
+
+  public static SolutionCache solutionCache() {
+    return solutionCache;
+  }
+
+  /**
+   * Persistent solutions, shared by all requests, if system property
+   * {@code kitting.solutionStore} is set to a directory. Survives restarts.
+   * Consulted when a solution is not in the (in-memory) solution cache.
+   */
+  private static final SolutionStore solutionStore = openSolutionStore();
+
+  private static SolutionStore openSolutionStore() {
+    final String directory = System.getProperty("kitting.solutionStore");
+    if (directory == null || directory.isBlank()) {
+      return null;
+    }
+    final SolutionStore store = SolutionStore.open(Paths.get(directory));
+    Runtime.getRuntime().addShutdownHook(new Thread(store::close, "LayoutPlanner-solutionStore"));
+    System.out.println("Opened solution store with " + store.size() + " solutions in " + directory);
+    return store;
+  }
+
+  public static Optional<SolutionStore> solutionStore() {
+    return Optional.ofNullable(solutionStore);
+  }
+
+  /**
+   * Recent solutions, used to warm start similar (but not identical) kits.
+   * Max number of solutions: system property {@code kitting.recentSolutions}
+   * (default {@value RecentSolutions#defaultCapacity}).
+   */
+  private static final RecentSolutions recentSolutions = new RecentSolutions(
+      Integer.getInteger("kitting.recentSolutions", RecentSolutions.defaultCapacity),
+      RecentSolutions.defaultMinOverlap);
+
+  public static RecentSolutions recentSolutions() {
+    return recentSolutions;
+  }
+
   public static PlanningResponse requestLayout(PlanningRequest request) {
     try {
-      long start = System.currentTimeMillis();
+      System.out.println(String.format("Handling request for kit %s with %d parts",
+            request.kit().kitId(), request.parts().size()));
       Layout unsolved = request.getLayout();
       // Add messages and edit layout
       request = Preprocess.preprocess(request, unsolved);
       if(request.messages().hasErrors()){
         return PlanningResponse.response(request);
       }
-      final Layout solved = solve(unsolved, "unified.xml");
+      return solveRequest(request, unsolved, defaultConfig, null);
+    } catch (Throwable e) {
+      e.printStackTrace();
+      return PlanningResponse.response(request, e);
+    }
+  }
+
+  /**
+   * Solves the layout of a preprocessed request (without errors) using this
+   * config, and returns the response.
+   * Every endpoint goes through here, so that a kit gets the same solution
+   * regardless of how it was submitted: identical kits are answered from
+   * the solution cache (or store), similar kits are warm started, and new
+   * solutions are added to the cache and store.
+   * Solutions of terminated solves are not added, since they may be poor.
+   * Errors are returned as error responses rather than thrown.
+   * @param control follows and stops the solve (may be null)
+   */
+  public static PlanningResponse solveRequest(final PlanningRequest request, final Layout unsolved,
+      final String xml, final SolveControl control) {
+    try {
+      long start = System.currentTimeMillis();
+      // Identical kits (up to part IDs) get the same solution.
+      final KitFingerprint fingerprint = KitFingerprint.of(unsolved);
+      final Optional<Layout> cached = cachedSolution(fingerprint, unsolved);
+      final Layout solved = cached.orElseGet(() -> {
+        // Similar kits start from the placements of an earlier solution.
+        recentSolutions.warmStart(unsolved);
+        return solve(unsolved, xml, control);
+      });
+      if (cached.isEmpty() && (control == null || !control.isTerminated())) {
+        solutionCache.put(fingerprint, solved);
+        recentSolutions.add(solved);
+        if (solutionStore != null) {
+          solutionStore.put(fingerprint, solved);
+        }
+      }
+      if (control != null) {
+        control.report(solved);
+      }
       long end = System.currentTimeMillis();
       long time = end-start;
-      System.out.println(String.format("Finished after %5d ms: with score: %s", time, solved.getScore()));
+      System.out.println(String.format("Finished after %5d ms: with score: %s%s", time, solved.getScore(),
+            cached.isPresent() ? " (cached)" : ""));
       return PlanningResponse.response(request, solved);
     } catch (Throwable e) {
       e.printStackTrace();
@@ -45,21 +198,118 @@ public class LayoutPlanner {
     }
   }
 
+  // From the solution cache, or else from the solution store (if any).
+  private static Optional<Layout> cachedSolution(final KitFingerprint fingerprint, final Layout unsolved) {
+    final Optional<Layout> cached = solutionCache.get(fingerprint, unsolved);
+    if (cached.isPresent() || solutionStore == null) {
+      return cached;
+    }
+    final Optional<CachedSolution> stored = solutionStore.get(fingerprint);
+    stored.ifPresent(solution -> solutionCache.put(fingerprint, solution));
+    return stored.map(solution -> solution.applyTo(unsolved));
+  }
+
+  /**
+   * Solves a batch of requests concurrently (at most {@link #batchWorkers}
+   * at a time). Returns the responses, with the time in ms spent on each,
+   * in the same order as the requests.
+   */
+  public static List<Pair<PlanningResponse,Long>> requestLayouts(List<PlanningRequest> requests) {
+    final List<Future<Pair<PlanningResponse,Long>>> futures = new ArrayList<>();
+    for (final PlanningRequest request : requests) {
+      futures.add(batchPool.submit(() -> {
+        final long start = System.currentTimeMillis();
+        final PlanningResponse response = requestLayout(request);
+        return pair(response, System.currentTimeMillis() - start);
+      }));
+    }
+    final List<Pair<PlanningResponse,Long>> responses = new ArrayList<>();
+    for (final var future : futures) {
+      try {
+        responses.add(future.get());
+      } catch (InterruptedException e) {
+        futures.forEach(f -> f.cancel(true));
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while solving batch", e);
+      } catch (ExecutionException e) {
+        // Cannot happen, since requestLayout handles all errors.
+        throw new IllegalStateException(e.getCause());
+      }
+    }
+    return responses;
+  }
+
   public static Layout solve(Layout unsolved, String xml) {
+    return solve(unsolved, xml, null);
+  }
+
+  /**
+   * Solves the layout using this config, attaching every solver to the
+   * control (if not null).
+   */
+  public static Layout solve(Layout unsolved, String xml, SolveControl control) {
     final var searchSpace = new BigDecimal(SearchSpace.compute(unsolved));
     System.out.println(String.format("Solving layout with search space: %e", searchSpace));
-    return SolverFactory
-      .<Layout>createFromXmlResource(xml)
-      .buildSolver()
-      .solve(unsolved);
+    if (starts > 1) {
+      return multiStartSolvers.computeIfAbsent(xml, x -> MultiStartSolver.fromXmlResource(x, starts))
+        .solve(unsolved, control);
+    }
+    final SolverConfig config = SolverFactories.config(xml);
+    final Layout solved;
+    final SolverTelemetry telemetry;
+    if (adaptiveResolution && AdaptiveResolutionSolver.supports(config)) {
+      telemetry = new SolverTelemetry();
+      solved = adaptiveSolvers.computeIfAbsent(xml, AdaptiveResolutionSolver::fromXmlResource)
+        .solve(unsolved, telemetry, control);
+    } else {
+      final Solver<Layout> solver = SolverFactories.solver(xml);
+      telemetry = SolverTelemetry.attach(solver, config);
+      if (control != null) {
+        control.attach(solver);
+      }
+      solved = solver.solve(unsolved);
+    }
+    // Spring Boot adds its registries to the global registry.
+    telemetry.publish(Metrics.globalRegistry);
+    if (verboseTelemetry) {
+      System.out.println(telemetry);
+    }
+    return solved;
   }
 
   public static String jsonResponse(String jsonRequest) {
-    System.out.println("Handling request: " + jsonRequest);
+    final StringWriter jsonResponse = new StringWriter();
+    jsonResponse(new StringReader(jsonRequest), jsonResponse);
+    return jsonResponse.toString();
+  }
+
+  /**
+   * Reads a JSON request from the stream and writes the JSON response to
+   * the other stream.
+   */
+  public static void jsonResponse(Reader jsonRequest, Writer jsonResponse) {
     PlanningRequest planningRequest = JsonIO.request(jsonRequest);
-    String jsonResponse = JsonIO.toJson(requestLayout(planningRequest));
-    System.out.println("Returning response: " + jsonResponse);
-    return jsonResponse;
+    JsonIO.writeResponse(requestLayout(planningRequest), jsonResponse);
+  }
+
+  public static String jsonBatchResponse(String jsonBatchRequest) {
+    final StringWriter jsonBatchResponse = new StringWriter();
+    jsonBatchResponse(new StringReader(jsonBatchRequest), jsonBatchResponse);
+    return jsonBatchResponse.toString();
+  }
+
+  /**
+   * Reads a JSON batch request from the stream and writes the JSON batch
+   * response to the other stream.
+   */
+  public static void jsonBatchResponse(Reader jsonBatchRequest, Writer jsonBatchResponse) {
+    final long start = System.currentTimeMillis();
+    final List<PlanningRequest> requests = JsonIO.batchRequest(jsonBatchRequest);
+    System.out.println("Handling batch of " + requests.size() + " requests");
+    final var responses = requestLayouts(requests);
+    final long time = System.currentTimeMillis() - start;
+    System.out.println(String.format("Finished batch of %d requests after %5d ms", requests.size(), time));
+    JsonIO.writeBatchResponse(responses, time, jsonBatchResponse);
   }
 
 }
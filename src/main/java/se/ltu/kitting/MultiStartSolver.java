@@ -0,0 +1,219 @@
+package se.ltu.kitting;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.config.phase.PhaseConfig;
+import org.optaplanner.core.config.phase.custom.CustomPhaseConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import se.ltu.kitting.algo.BottomLeftInit;
+import se.ltu.kitting.algo.RandomInit;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.util.SolveControl;
+import se.ltu.kitting.util.SolverFactories;
+import se.ltu.kitting.util.Util;
+
+/**
+ * Solves a layout by running several independent solvers concurrently, each
+ * on its own copy of the layout, and returns the best solution found.
+ * As soon as one of them finds an optimal (0hard/0soft) solution, all the
+ * others are terminated.
+ * <p>
+ * The first start uses the config unchanged, so the result is never worse
+ * than what a single solver would find (given the same CPU time).
+ * The other starts are diversified by using a different random seed for the
+ * solver (which drives move selection) and for {@link RandomInit}, and by
+ * alternating the order used by {@link BottomLeftInit}.
+ */
+public class MultiStartSolver {
+
+  /** How often to retry terminating solvers that have not stopped yet. */
+  private static final long terminationRetryMillis = 20;
+
+  /**
+   * Number of starts to run concurrently
+   * (system property {@code kitting.multiStartWorkers}, default: number of
+   * processors). Shared by all solves, so further starts wait for a thread.
+   */
+  public static final int workers =
+    Integer.getInteger("kitting.multiStartWorkers", Runtime.getRuntime().availableProcessors());
+
+  private static final ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+    final Thread thread = new Thread(r, "MultiStartSolver");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final SolverConfig config;
+  private final int starts;
+  // Built once, so that the factories can be reused (see SolverFactories).
+  private final List<SolverConfig> startConfigs = new ArrayList<>();
+
+  public MultiStartSolver(final SolverConfig config, final int starts) {
+    if (starts < 1) {
+      throw new IllegalArgumentException("Need at least one start: " + starts);
+    }
+    this.config = config;
+    this.starts = starts;
+    for (int i = 0; i < starts; i++) {
+      startConfigs.add(configForStart(i));
+    }
+  }
+
+  public static MultiStartSolver fromXmlResource(final String xml, final int starts) {
+    return new MultiStartSolver(SolverFactories.config(xml), starts);
+  }
+
+  public int starts() {
+    return starts;
+  }
+
+  /** Solve (a copy of) the layout. The layout itself is not modified. */
+  public Layout solve(final Layout unsolved) {
+    return solve(unsolved, null);
+  }
+
+  /**
+   * Solve (a copy of) the layout, attaching the solver of every start to
+   * the control (if not null).
+   */
+  public Layout solve(final Layout unsolved, final SolveControl control) {
+    if (starts == 1) {
+      final Solver<Layout> solver = SolverFactories.solver(startConfigs.get(0));
+      if (control != null) {
+        control.attach(solver);
+      }
+      return solver.solve(Layout.copyOf(unsolved));
+    }
+    final AtomicBoolean done = new AtomicBoolean(false);
+    final List<Solver<Layout>> solvers = new CopyOnWriteArrayList<>();
+    final List<Future<Layout>> futures = new ArrayList<>();
+    try {
+      for (int i = 0; i < starts; i++) {
+        final SolverConfig startConfig = startConfigs.get(i);
+        futures.add(pool.submit(() -> {
+          final Solver<Layout> solver = SolverFactories.solver(startConfig);
+          if (control != null) {
+            control.attach(solver);
+          }
+          solver.addEventListener(event -> {
+            if (Util.optimalScore(event.getNewBestSolution().getScore())) {
+              done.set(true);
+            }
+          });
+          solvers.add(solver);
+          if (done.get()) {
+            return null;  // Some other start already found an optimal solution.
+          }
+          final Layout solved = solver.solve(Layout.copyOf(unsolved));
+          if (Util.optimalScore(solved.getScore())) {
+            done.set(true);
+          }
+          return solved;
+        }));
+      }
+      return best(await(futures, solvers, done));
+    } finally {
+      // Only needed if this failed or was interrupted. Otherwise all are done.
+      futures.forEach(future -> future.cancel(true));
+    }
+  }
+
+  // Collects the results. Once done, keeps terminating the solvers that are
+  // still running. (A solver ignores termination before it has started.)
+  private static List<Layout> await(final List<Future<Layout>> futures,
+      final List<Solver<Layout>> solvers, final AtomicBoolean done) {
+    final List<Layout> results = new ArrayList<>();
+    ExecutionException failure = null;
+    for (final Future<Layout> future : futures) {
+      while (true) {
+        if (done.get()) {
+          solvers.forEach(Solver::terminateEarly);
+        }
+        try {
+          final Layout result = future.get(terminationRetryMillis, TimeUnit.MILLISECONDS);
+          if (result != null) {
+            results.add(result);
+          }
+          break;
+        } catch (TimeoutException e) {
+          continue;
+        } catch (ExecutionException e) {
+          failure = e;
+          break;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          solvers.forEach(Solver::terminateEarly);
+          throw new IllegalStateException("Interrupted while solving", e);
+        }
+      }
+    }
+    if (results.isEmpty() && failure != null) {
+      throw new IllegalStateException("All starts failed", failure.getCause());
+    }
+    return results;
+  }
+
+  private static Layout best(final List<Layout> results) {
+    Layout best = null;
+    for (final Layout layout : results) {
+      if (best == null || layout.getScore().compareTo(best.getScore()) > 0) {
+        best = layout;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * The config used by the given start. Start 0 uses the original config.
+   * The others get different seeds and construction orders.
+   */
+  SolverConfig configForStart(final int start) {
+    final SolverConfig result = config.copyConfig();
+    if (start == 0) {
+      return result;
+    }
+    final long seed = config.getRandomSeed() == null ? 0L : config.getRandomSeed();
+    result.setRandomSeed(seed + start);
+    final List<PhaseConfig> phases = new ArrayList<>();
+    for (final PhaseConfig phase : config.getPhaseConfigList()) {
+      phases.add(diversify((PhaseConfig) phase.copyConfig(), start));
+    }
+    result.setPhaseConfigList(phases);
+    return result;
+  }
+
+  private static PhaseConfig diversify(final PhaseConfig phase, final int start) {
+    if (!(phase instanceof CustomPhaseConfig)) {
+      return phase;
+    }
+    final CustomPhaseConfig custom = (CustomPhaseConfig) phase;
+    final var classes = custom.getCustomPhaseCommandClassList();
+    if (classes == null) {
+      return phase;
+    }
+    final var properties = custom.getCustomProperties() == null
+      ? new HashMap<String,String>()
+      : new HashMap<>(custom.getCustomProperties());
+    if (classes.contains(RandomInit.class)) {
+      final long seed = Long.parseLong(properties.getOrDefault("seed", "0"));
+      properties.put("seed", String.valueOf(seed + start));
+    }
+    if (classes.contains(BottomLeftInit.class) && start % 2 == 1) {
+      final String order = properties.getOrDefault("order", "volume");
+      properties.put("order", order.equals("volume") ? "minArea" : "volume");
+    }
+    custom.setCustomProperties(properties);
+    return custom;
+  }
+
+}
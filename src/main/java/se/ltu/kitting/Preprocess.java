@@ -132,19 +132,20 @@ public class Preprocess {
   // partTooBig() not needed together with this method
   public static PlanningRequest removeImpossibleSides(PlanningRequest request, Layout layout) {
     Map<Integer,List<Message>> messages = new HashMap<>();
+    // The surface bounds are the same for all parts.
+    int surfaceX = 0;
+    int surfaceY = 0;
+    int surfaceZ = 0;
+    for(Surface surface : layout.getWagon().surfaces()){
+      surfaceX = Math.max(surfaceX, surface.width());
+      surfaceY = Math.max(surfaceY, surface.depth());
+      surfaceZ = Math.max(surfaceZ, surface.height());
+    }
     for(Part part : layout.getParts()){
       Collection<Side> allowedSides = part.getAllowedDown();
       int partX = part.getSize().getX();
       int partY = part.getSize().getY();
       int partZ = part.getSize().getZ();
-      int surfaceX = 0;
-      int surfaceY = 0;
-      int surfaceZ = 0;
-      for(Surface surface : layout.getWagon().surfaces()){
-        surfaceX = Math.max(surfaceX, surface.width());
-        surfaceY = Math.max(surfaceY, surface.depth());
-        surfaceZ = Math.max(surfaceZ, surface.height());
-      }
       if((partZ > surfaceZ || partX > Math.max(surfaceX, surfaceY) || partY > Math.max(surfaceX, surfaceY))){
         allowedSides.remove(Side.bottom);
         allowedSides.remove(Side.top);
@@ -0,0 +1,198 @@
+package se.ltu.kitting.algo;
+
+import se.ltu.kitting.algo.move.PlacementMove;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.Part;
+import se.ltu.kitting.model.Side;
+import se.ltu.kitting.model.Rotation;
+import se.ltu.kitting.model.Surface;
+import se.ltu.kitting.model.Dimensions;
+import se.ltu.kitting.score.HardScore;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.phase.custom.CustomPhaseCommand;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Custom phase that deterministically packs parts using a bottom-left
+ * heuristic. Intended to run after {@link HintInit}, instead of
+ * {@link RandomInit}, to give local search a (hopefully) feasible start.
+ * <p>
+ * Parts that already have a position (such as hinted parts) are left where
+ * they are and treated as obstacles. If such a part is missing a side or
+ * rotation, those are initialized (hinted, then preferred, then min area
+ * side) and, if it has a hint, its corner is recomputed from the hinted
+ * center.
+ * <p>
+ * The remaining parts are placed one at a time, largest first, according
+ * to {@link #order} ({@code volume} uses {@link VolumeComparator} and
+ * {@code minArea} uses {@link MinAreaComparator}).
+ * Each part is placed at the back-most, then left-most, position where it
+ * fits without overlapping any placed part (taking margins into account).
+ * Candidate positions are the surface corner and the positions just past the
+ * right and front edges (plus margin) of the parts already placed.
+ * Sides are tried in order: preferred side, then the remaining allowed sides
+ * from smallest to largest area. Both rotations are tried for each side.
+ * The first side that fits anywhere is used, on the first surface where it
+ * fits.
+ * <p>
+ * A part that does not fit anywhere is placed in the corner of the first
+ * surface on its min area side, and local search has to sort it out.
+ */
+public class BottomLeftInit implements CustomPhaseCommand<Layout> {
+
+  /** Order in which to place parts: "volume" (default) or "minArea". */
+  public String order = "volume";
+
+  public void setOrder(final String order) {
+    this.order = order;
+  }
+
+  @Override
+  public void changeWorkingSolution(final ScoreDirector<Layout> scoreDirector) {
+    final Layout layout = scoreDirector.getWorkingSolution();
+    final List<Part> placed = new ArrayList<>();
+    final List<Part> unplaced = new ArrayList<>();
+    for (final Part part : layout.getParts()) {
+      if (part.getPosition() != null) {
+        completeFixedPart(scoreDirector, layout, part);
+        placed.add(part);
+      } else {
+        unplaced.add(part);
+      }
+    }
+    unplaced.sort(comparator().reversed().thenComparing(Part::getId));
+    for (final Part part : unplaced) {
+      final Placement placement = findPlacement(layout, part, placed);
+      set(scoreDirector, part, placement.side, placement.rotation, placement.position);
+      placed.add(part);
+    }
+  }
+
+  private Comparator<Part> comparator() {
+    switch (order) {
+      case "volume": return new VolumeComparator();
+      case "minArea": return new MinAreaComparator();
+      default: throw new IllegalArgumentException("Unknown order: " + order);
+    }
+  }
+
+  // Fills in the side and rotation of a part that already has a position.
+  private void completeFixedPart(final ScoreDirector<Layout> scoreDirector, final Layout layout, final Part part) {
+    if (part.fullyInitialized()) {
+      return;
+    }
+    final Rotation rotation = part.getRotation() != null ? part.getRotation() : Rotation.ZERO;
+    Side side = part.getSideDown();
+    if (side == null) {
+      side = part.getPreferredDown() != null ? part.getPreferredDown() : part.minAreaSide();
+    }
+    Dimensions position = part.getPosition();
+    if (part.hasHint()) {
+      // The position was probably set from the center without knowing the
+      // current dimensions.
+      final Dimensions size = Rotation.rotation(side, rotation).apply(part.getSize());
+      final Dimensions corner = Part.centerToCorner(part.getHint().centerPosition(), size);
+      position = Dimensions.of(corner.x, corner.y, part.getHint().surfaceId());
+    }
+    set(scoreDirector, part, side, rotation, position);
+  }
+
+  private Placement findPlacement(final Layout layout, final Part part, final List<Part> placed) {
+    // Tried at each candidate placement, so the part itself is not changed
+    // behind the back of the score director.
+    final Part probe = Part.copyOf(part);
+    for (final Side side : sides(part)) {
+      probe.setSideDown(side);
+      for (final Surface surface : layout.getWagon().surfaces()) {
+        Placement best = null;
+        for (final Rotation rotation : List.of(Rotation.ZERO, Rotation.Z90)) {
+          probe.setRotation(rotation);
+          final Dimensions position = bottomLeft(surface, probe, placed);
+          if (position != null && (best == null || isBefore(position, best.position))) {
+            best = new Placement(side, rotation, position);
+          }
+        }
+        if (best != null) {
+          return best;
+        }
+      }
+    }
+    final Surface first = layout.getWagon().surfaces().get(0);
+    return new Placement(part.minAreaSide(), Rotation.ZERO, Dimensions.of(0, 0, first.id()));
+  }
+
+  private static boolean isBefore(final Dimensions p1, final Dimensions p2) {
+    return p1.y < p2.y || (p1.y == p2.y && p1.x < p2.x);
+  }
+
+  // Preferred side first, then the other allowed sides by increasing area.
+  private static List<Side> sides(final Part part) {
+    final var allowed = part.getAllowedDown();
+    final List<Side> sides = new ArrayList<>(allowed != null ? allowed : List.of(Side.values()));
+    sides.sort(Comparator.comparingInt(part::areaOf));
+    final Side preferred = part.getPreferredDown();
+    if (preferred != null && sides.remove(preferred)) {
+      sides.add(0, preferred);
+    }
+    return sides;
+  }
+
+  /**
+   * The back-most, then left-most, position on the surface where the part
+   * (with its current side and rotation) fits without overlapping any placed
+   * part, or null if there is none. Moves the part to the positions it tries.
+   */
+  static Dimensions bottomLeft(final Surface surface, final Part part, final List<Part> placed) {
+    if (part.height() > surface.height() || part.width() > surface.width() || part.depth() > surface.depth()) {
+      return null;
+    }
+    final int z = surface.id();
+    final TreeSet<Integer> xs = new TreeSet<>(List.of(0));
+    final TreeSet<Integer> ys = new TreeSet<>(List.of(0));
+    for (final Part other : placed) {
+      if (other.surfaceId() == z) {
+        final int m = Math.max(part.getMargin(), other.getMargin());
+        xs.add(other.right() + m + 1);
+        ys.add(other.front() + m + 1);
+      }
+    }
+    for (final int y : ys) {
+      if (y + part.depth() > surface.depth()) {
+        break;
+      }
+      for (final int x : xs) {
+        if (x + part.width() > surface.width()) {
+          break;
+        }
+        final Dimensions position = Dimensions.of(x, y, z);
+        part.setPosition(position);
+        if (placed.stream().noneMatch(other -> HardScore.partsOverlap(part, other))) {
+          return position;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static void set(final ScoreDirector<Layout> scoreDirector, final Part part,
+      final Side side, final Rotation rotation, final Dimensions position) {
+    PlacementMove.place(scoreDirector, part, side, rotation, position);
+    scoreDirector.triggerVariableListeners();
+  }
+
+  private static final class Placement {
+    final Side side;
+    final Rotation rotation;
+    final Dimensions position;
+
+    Placement(final Side side, final Rotation rotation, final Dimensions position) {
+      this.side = side;
+      this.rotation = rotation;
+      this.position = position;
+    }
+  }
+
+}
@@ -0,0 +1,157 @@
+package se.ltu.kitting.algo;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import se.ltu.kitting.model.Dimensions;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.Part;
+import se.ltu.kitting.model.Surface;
+
+/**
+ * Candidate positions for a part, generated from the current layout in the
+ * style of extreme-point packing, instead of a uniform grid.
+ * <p>
+ * On each surface where the part fits, the candidates are the four corners
+ * of the surface (with the part flush against the edges), and, for each
+ * other part on that surface, the positions just past its right, front,
+ * left and back edges (plus margin), aligned with its edges or pushed
+ * against the back or left edge of the surface.
+ * Only positions where the part is inside the surface are included.
+ * <p>
+ * So the number of candidates grows with the number of parts (at most
+ * 4 + 8 per other part and surface) rather than with the size of the
+ * surfaces, typically a few hundred instead of 10⁵–10⁶ grid positions.
+ */
+public final class CornerPoints {
+
+  /** Number of candidates next to each other part. */
+  private static final int perPart = 8;
+  /** Number of tries before {@link #random} gives up. */
+  private static final int maxTries = 16;
+
+  private CornerPoints() {}
+
+  /** Candidate positions for the part, given its current footprint. */
+  public static List<Dimensions> candidates(final Layout layout, final Part part) {
+    return candidates(layout, part, part.width(), part.depth(), part.height());
+  }
+
+  /**
+   * Candidate positions for the part, if it had this footprint.
+   * Other parts that have not been fully initialized are ignored.
+   */
+  public static List<Dimensions> candidates(final Layout layout, final Part part,
+      final int width, final int depth, final int height) {
+    final List<Dimensions> result = new ArrayList<>();
+    for (final Surface surface : layout.getWagon().surfaces()) {
+      if (!fits(surface, width, depth, height)) {
+        continue;
+      }
+      final int z = surface.id();
+      final int maxX = surface.width() - width;
+      final int maxY = surface.depth() - depth;
+      final Set<Dimensions> points = new LinkedHashSet<>();
+      for (int i = 0; i < 4; i++) {
+        points.add(Dimensions.of(cornerX(i, maxX), cornerY(i, maxY), z));
+      }
+      for (final Part other : layout.getParts()) {
+        if (other == part || !other.fullyInitialized() || other.surfaceId() != z) {
+          continue;
+        }
+        final int m = Math.max(part.getMargin(), other.getMargin());
+        for (int i = 0; i < perPart; i++) {
+          final int x = x(i, other, m, width);
+          final int y = y(i, other, m, depth);
+          if (x >= 0 && x <= maxX && y >= 0 && y <= maxY) {
+            points.add(Dimensions.of(x, y, z));
+          }
+        }
+      }
+      result.addAll(points);
+    }
+    return result;
+  }
+
+  /**
+   * A random candidate position for the part, if it had this footprint,
+   * or null if none was found.
+   * Unlike {@link #candidates(Layout, Part, int, int, int)}, this takes
+   * (expected) constant time, but candidates next to several parts are
+   * more likely to be picked.
+   */
+  public static Dimensions random(final Layout layout, final Part part,
+      final int width, final int depth, final int height, final Random random) {
+    final List<Part> parts = layout.getParts();
+    final List<Surface> surfaces = layout.getWagon().surfaces();
+    final int corners = 4 * surfaces.size();
+    for (int tries = 0; tries < maxTries; tries++) {
+      final int r = random.nextInt(corners + perPart * parts.size());
+      if (r < corners) {
+        final Surface surface = surfaces.get(r / 4);
+        if (fits(surface, width, depth, height)) {
+          final int x = cornerX(r % 4, surface.width() - width);
+          final int y = cornerY(r % 4, surface.depth() - depth);
+          return Dimensions.of(x, y, surface.id());
+        }
+        continue;
+      }
+      final Part other = parts.get((r - corners) / perPart);
+      if (other == part || !other.fullyInitialized()) {
+        continue;
+      }
+      final Surface surface = layout.getWagon().getSurfaceById(other.surfaceId());
+      if (surface == null || !fits(surface, width, depth, height)) {
+        continue;
+      }
+      final int i = (r - corners) % perPart;
+      final int m = Math.max(part.getMargin(), other.getMargin());
+      final int x = x(i, other, m, width);
+      final int y = y(i, other, m, depth);
+      if (x >= 0 && x <= surface.width() - width && y >= 0 && y <= surface.depth() - depth) {
+        return Dimensions.of(x, y, surface.id());
+      }
+    }
+    return null;
+  }
+
+  private static boolean fits(final Surface surface, final int width, final int depth, final int height) {
+    return height <= surface.height() && width <= surface.width() && depth <= surface.depth();
+  }
+
+  // Back left, back right, front left, front right.
+  private static int cornerX(final int i, final int maxX) {
+    return i % 2 == 0 ? 0 : maxX;
+  }
+
+  private static int cornerY(final int i, final int maxY) {
+    return i < 2 ? 0 : maxY;
+  }
+
+  // Candidate i next to the other part: 0-2 to the right (aligned with its
+  // back, aligned with its front, against the back edge), 3-5 in front
+  // (aligned with its left, aligned with its right, against the left edge),
+  // 6 to the left and 7 behind.
+  private static int x(final int i, final Part other, final int margin, final int width) {
+    switch (i) {
+      case 0: case 1: case 2: return other.right() + margin + 1;
+      case 3: case 7: return other.left();
+      case 4: return other.right() - width + 1;
+      case 5: return 0;
+      default: return other.left() - margin - width;
+    }
+  }
+
+  private static int y(final int i, final Part other, final int margin, final int depth) {
+    switch (i) {
+      case 0: case 6: return other.back();
+      case 1: return other.front() - depth + 1;
+      case 2: return 0;
+      case 3: case 4: case 5: return other.front() + margin + 1;
+      default: return other.back() - margin - depth;
+    }
+  }
+
+}
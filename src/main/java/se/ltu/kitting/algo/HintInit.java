@@ -2,6 +2,7 @@ package se.ltu.kitting.algo;
 
 import se.ltu.kitting.model.Layout;
 import se.ltu.kitting.model.Part;
+import se.ltu.kitting.model.LayoutHint;
 import se.ltu.kitting.model.Dimensions;
 import org.optaplanner.core.api.score.director.ScoreDirector;
 import org.optaplanner.core.impl.phase.custom.CustomPhaseCommand;
@@ -18,6 +19,10 @@ import org.optaplanner.core.impl.phase.custom.CustomPhaseCommand;
  * position while parts use corner position.)
  * <p>
  * By default also initializes side using the preferred side if no hint exists.
+ * <p>
+ * Parts without a hint, but with a {@link Part#getWarmStart() warm start},
+ * are initialized from the warm start in the same way (unless
+ * {@link #initWarmStart} is off).
  * @author Christoffer Fink
  */
 public class HintInit implements CustomPhaseCommand<Layout> {
@@ -30,6 +35,8 @@ public class HintInit implements CustomPhaseCommand<Layout> {
   public boolean initRotation = true;
   /** Use preferred side for initialization if no side is hinted. */
   public boolean initPreferred = true;
+  /** Use the warm start (if any) of parts that have no hint. */
+  public boolean initWarmStart = true;
 
   public void setInitPosition(final boolean flag) {
     this.initPosition = flag;
@@ -47,6 +54,10 @@ public class HintInit implements CustomPhaseCommand<Layout> {
     this.initPreferred = flag;
   }
 
+  public void setInitWarmStart(final boolean flag) {
+    this.initWarmStart = flag;
+  }
+
   public void assertValid() {
     if (initPosition && !(initSide && initRotation)) {
       throw new IllegalStateException("Cannot initialize position without side and rotation");
@@ -58,25 +69,26 @@ public class HintInit implements CustomPhaseCommand<Layout> {
     assertValid();
     final Layout layout = scoreDirector.getWorkingSolution();
     for (Part part : layout.getParts()) {
-      if (part.getHint() != null) {
+      final LayoutHint hint = hintOrWarmStart(part);
+      if (hint != null) {
         if (initRotation) {
           scoreDirector.beforeVariableChanged(part, "rotation");
-          part.getHint().rotation().ifPresent(part::setRotation);
+          hint.rotation().ifPresent(part::setRotation);
           scoreDirector.afterVariableChanged(part, "rotation");
         }
 
         if (initSide) {
           scoreDirector.beforeVariableChanged(part, "sideDown");
-          part.getHint().side().ifPresent(part::setSideDown);
+          hint.side().ifPresent(part::setSideDown);
           scoreDirector.afterVariableChanged(part, "sideDown");
         }
 
         if (initPosition) {
-          Dimensions pos = part.getHint().centerPosition();
+          Dimensions pos = hint.centerPosition();
           if (part.getRotation() != null && part.getSideDown() != null) {
             pos = Part.centerToCorner(pos, part.currentDimensions());
           }
-          pos = Dimensions.of(pos.x, pos.y, part.getHint().surfaceId());
+          pos = Dimensions.of(pos.x, pos.y, hint.surfaceId());
 
           scoreDirector.beforeVariableChanged(part, "position");
           part.setPosition(pos);
@@ -94,4 +106,11 @@ public class HintInit implements CustomPhaseCommand<Layout> {
     }
   }
 
+  private LayoutHint hintOrWarmStart(final Part part) {
+    if (part.getHint() != null) {
+      return part.getHint();
+    }
+    return initWarmStart ? part.getWarmStart() : null;
+  }
+
 }
@@ -6,7 +6,6 @@ import se.ltu.kitting.model.Side;
 import org.optaplanner.core.api.score.director.ScoreDirector;
 import org.optaplanner.core.impl.phase.custom.CustomPhaseCommand;
 import java.util.Random;
-import java.util.List;
 
 /**
  * Custom phase that randomly initializes parts.
@@ -44,9 +43,9 @@ public class RandomInit implements CustomPhaseCommand<Layout> {
   @Override
   public void changeWorkingSolution(final ScoreDirector<Layout> scoreDirector) {
     final Layout layout = scoreDirector.getWorkingSolution();
-    final var positions = List.copyOf(layout.getPositions());
+    final var positions = layout.getPositions();
     final var rng = new Random(seed);
-    final int max = positions.size();
+    final int max = Math.toIntExact(positions.getSize());
     for (final var part : layout.getParts()) {
       if (part.hasHint()) {
         // TODO: Remove this check? In practice, this phase will run after
@@ -1,6 +1,7 @@
 package se.ltu.kitting.algo;
 
 import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.StepSizes;
 import org.optaplanner.core.api.score.director.ScoreDirector;
 import org.optaplanner.core.impl.phase.custom.CustomPhaseCommand;
 
@@ -10,12 +11,25 @@ import org.optaplanner.core.impl.phase.custom.CustomPhaseCommand;
 // So "resolution" may be too specific as well.
 /**
  * A custom phase command that adjusts the position resolution (step size).
+ * <p>
+ * The step size is either absolute ({@code resolution}), derived per
+ * surface from a target number of positions on each surface
+ * ({@code positions}), or derived from the smallest part dimension in the
+ * kit ({@code partFraction}). The last two make the same config behave the
+ * same regardless of the size of the wagon. If more than one is set,
+ * {@code positions} takes precedence over {@code partFraction}, which takes
+ * precedence over {@code resolution}.
+ * @see StepSizes
  * @author Christoffer Fink
  */
 public class ResolutionChange implements CustomPhaseCommand<Layout> {
 
   /** The new step size to apply. */
   public int resolution = 1;
+  /** Target number of positions per surface (0 if not used). */
+  public int positions = 0;
+  /** Step size as a fraction of the smallest part dimension (0 if not used). */
+  public double partFraction = 0;
   /** Verbose mode outputs the new resolution being applied. */
   public boolean verbose = false;
 
@@ -23,6 +37,14 @@ public class ResolutionChange implements CustomPhaseCommand<Layout> {
     this.resolution = resolution;
   }
 
+  public void setPositions(final int positions) {
+    this.positions = positions;
+  }
+
+  public void setPartFraction(final double fraction) {
+    this.partFraction = fraction;
+  }
+
   public void setVerbose(final boolean flag) {
     this.verbose = flag;
   }
@@ -36,11 +58,23 @@ public class ResolutionChange implements CustomPhaseCommand<Layout> {
   @Override
   public void changeWorkingSolution(final ScoreDirector<Layout> scoreDirector) {
     final Layout layout = scoreDirector.getWorkingSolution();
+    final StepSizes steps = stepSizes(layout);
     // TODO: use logging framework instead?
     if (verbose) {
-      System.out.println("Setting resolution to " + resolution);
+      System.out.println("Setting resolution to " + steps);
+    }
+    layout.setPositionStepSizes(steps);
+  }
+
+  /** The step sizes to apply to this layout. */
+  public StepSizes stepSizes(final Layout layout) {
+    if (positions > 0) {
+      return StepSizes.forPositionCount(layout.getWagon(), positions);
+    }
+    if (partFraction > 0) {
+      return StepSizes.forSmallestPart(layout.getParts(), partFraction);
     }
-    layout.setPositionStepSize(resolution);
+    return StepSizes.of(resolution);
   }
 
 }
@@ -0,0 +1,116 @@
+package se.ltu.kitting.algo;
+
+import java.util.ArrayList;
+import java.util.List;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.StepSizes;
+import se.ltu.kitting.model.Surface;
+import se.ltu.kitting.model.Wagon;
+
+/**
+ * A coarse-to-fine sequence of position step sizes (see
+ * {@link ResolutionChange}), always ending with 1.
+ * <p>
+ * The coarsest step size is chosen so that there are about
+ * {@link #defaultPositionsPerPart} positions (in total) per part, which
+ * keeps the search space small enough to quickly find a rough layout
+ * regardless of the size of the wagon (like the {@code positions} mode of
+ * {@link ResolutionChange}, but over all surfaces together). Each following
+ * step size is {@link #defaultRefinement} times smaller than the previous
+ * one.
+ * <p>
+ * For example, the three 1000x600 surfaces of the demo wagon with 10 parts
+ * give the schedule [106, 27, 7, 2, 1].
+ */
+public final class ResolutionSchedule {
+
+  public static final int defaultPositionsPerPart = 16;
+  public static final int defaultRefinement = 4;
+
+  private final List<Integer> steps;
+
+  private ResolutionSchedule(final List<Integer> steps) {
+    this.steps = List.copyOf(steps);
+  }
+
+  /** A schedule with exactly these step sizes, which must end with 1. */
+  public static ResolutionSchedule of(final List<Integer> steps) {
+    if (steps.isEmpty() || steps.get(steps.size() - 1) != 1) {
+      throw new IllegalArgumentException("Schedule must end with step size 1: " + steps);
+    }
+    for (int i = 1; i < steps.size(); i++) {
+      if (steps.get(i) >= steps.get(i - 1)) {
+        throw new IllegalArgumentException("Step sizes must be decreasing: " + steps);
+      }
+    }
+    return new ResolutionSchedule(steps);
+  }
+
+  /** The default schedule for this layout. */
+  public static ResolutionSchedule forLayout(final Layout layout) {
+    return forWagon(layout.getWagon(), layout.getParts().size(),
+        defaultPositionsPerPart, defaultRefinement);
+  }
+
+  /**
+   * A schedule for this many parts on the wagon.
+   * The coarsest step size is at most a quarter of the smallest side of
+   * any (non-empty) surface, so that every surface has several positions
+   * along each axis.
+   */
+  public static ResolutionSchedule forWagon(final Wagon wagon, final int parts,
+      final int positionsPerPart, final int refinement) {
+    if (positionsPerPart < 1) {
+      throw new IllegalArgumentException("Illegal positions per part: " + positionsPerPart);
+    }
+    if (refinement < 2) {
+      throw new IllegalArgumentException("Illegal refinement: " + refinement);
+    }
+    long area = 0;
+    int minSide = Integer.MAX_VALUE;
+    for (final Surface surface : wagon.surfaces()) {
+      final int width = surface.width();
+      final int depth = surface.depth();
+      if (width > 0 && depth > 0) {
+        area += (long) width * depth;
+        minSide = Math.min(minSide, Math.min(width, depth));
+      }
+    }
+    if (area == 0) {
+      return new ResolutionSchedule(List.of(1));
+    }
+    int step = StepSizes.forArea(area, positionsPerPart * Math.max(parts, 1));
+    step = Math.max(1, Math.min(step, minSide / 4));
+    final List<Integer> steps = new ArrayList<>();
+    while (step > 1) {
+      steps.add(step);
+      step = Math.round((float) step / refinement);
+    }
+    steps.add(1);
+    return new ResolutionSchedule(steps);
+  }
+
+  /** The step sizes, from coarsest to finest (1). */
+  public List<Integer> steps() {
+    return steps;
+  }
+
+  public int coarsest() {
+    return steps.get(0);
+  }
+
+  /**
+   * The step size after this one, or 1 if this is not in the schedule.
+   * The step size after 1 is 1.
+   */
+  public int next(final int step) {
+    final int i = steps.indexOf(step);
+    return i < 0 || i + 1 == steps.size() ? 1 : steps.get(i + 1);
+  }
+
+  @Override
+  public String toString() {
+    return "ResolutionSchedule" + steps;
+  }
+
+}
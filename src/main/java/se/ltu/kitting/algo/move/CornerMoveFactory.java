@@ -0,0 +1,101 @@
+package se.ltu.kitting.algo.move;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.heuristic.selector.move.factory.MoveIteratorFactory;
+import se.ltu.kitting.algo.CornerPoints;
+import se.ltu.kitting.model.Dimensions;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.Part;
+import se.ltu.kitting.model.Rotation;
+import se.ltu.kitting.model.Side;
+
+/**
+ * Moves a part to one of its {@link CornerPoints corner points}, with
+ * either rotation (keeping its side down). The candidates are computed
+ * from the current layout when each move is selected, so they follow the
+ * other parts as they move.
+ * <p>
+ * Use as a {@code moveIteratorFactory} in a local search phase, typically
+ * in a union with the ordinary change and swap move selectors.
+ */
+public class CornerMoveFactory implements MoveIteratorFactory<Layout, PlacementMove> {
+
+  private static final List<Rotation> rotations = List.of(Rotation.ZERO, Rotation.Z90);
+
+  /** An estimate (the exact number depends on where the parts are). */
+  @Override
+  public long getSize(final ScoreDirector<Layout> scoreDirector) {
+    final Layout layout = scoreDirector.getWorkingSolution();
+    final long parts = layout.getParts().size();
+    final long surfaces = layout.getWagon().surfaces().size();
+    return parts * rotations.size() * surfaces * (4 + 8 * Math.max(parts - 1, 0));
+  }
+
+  /** All corner moves of all parts in the layout as it is now. */
+  @Override
+  public Iterator<PlacementMove> createOriginalMoveIterator(final ScoreDirector<Layout> scoreDirector) {
+    final Layout layout = scoreDirector.getWorkingSolution();
+    final List<PlacementMove> moves = new ArrayList<>();
+    for (final Part part : layout.getParts()) {
+      if (!part.fullyInitialized() || part.isPinned()) {
+        continue;
+      }
+      for (final Rotation rotation : rotations) {
+        moves.addAll(moves(layout, part, rotation));
+      }
+    }
+    return moves.iterator();
+  }
+
+  /** Never ends. Picks a random part, rotation and candidate position. */
+  @Override
+  public Iterator<PlacementMove> createRandomMoveIterator(final ScoreDirector<Layout> scoreDirector,
+      final Random random) {
+    final Layout layout = scoreDirector.getWorkingSolution();
+    final List<Part> parts = layout.getParts();
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return !parts.isEmpty();
+      }
+
+      @Override
+      public PlacementMove next() {
+        if (parts.isEmpty()) {
+          throw new NoSuchElementException();
+        }
+        final Part part = parts.get(random.nextInt(parts.size()));
+        final Rotation rotation = rotations.get(random.nextInt(rotations.size()));
+        if (!part.fullyInitialized() || part.isPinned()) {
+          return PlacementMove.position(part, part.getPosition());  // Not doable.
+        }
+        final Dimensions size = Rotation.rotation(part.getSideDown(), rotation).apply(part.getSize());
+        final Dimensions position = CornerPoints.random(layout, part, size.x, size.y, size.z, random);
+        if (position == null) {
+          return PlacementMove.position(part, part.getPosition());  // Not doable.
+        }
+        return new PlacementMove(part, part.getSideDown(), rotation, position);
+      }
+    };
+  }
+
+  private static List<PlacementMove> moves(final Layout layout, final Part part, final Rotation rotation) {
+    final List<PlacementMove> moves = new ArrayList<>();
+    for (final Dimensions position : candidates(layout, part, rotation)) {
+      moves.add(new PlacementMove(part, part.getSideDown(), rotation, position));
+    }
+    return moves;
+  }
+
+  private static List<Dimensions> candidates(final Layout layout, final Part part, final Rotation rotation) {
+    final Side side = part.getSideDown();
+    final Dimensions size = Rotation.rotation(side, rotation).apply(part.getSize());
+    return CornerPoints.candidates(layout, part, size.x, size.y, size.z);
+  }
+
+}
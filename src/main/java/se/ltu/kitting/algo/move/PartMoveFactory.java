@@ -0,0 +1,78 @@
+package se.ltu.kitting.algo.move;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.heuristic.selector.move.factory.MoveIteratorFactory;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.Part;
+
+/**
+ * Base class for factories of moves that each move a single part, where
+ * the few possible moves of a part depend on where the parts currently
+ * are. The moves are therefore created when they are selected.
+ */
+abstract class PartMoveFactory implements MoveIteratorFactory<Layout, PlacementMove> {
+
+  /**
+   * The doable moves of this (fully initialized, unpinned) part in the
+   * layout as it is now. May be empty.
+   */
+  abstract List<PlacementMove> moves(Layout layout, Part part);
+
+  /** The maximum number of moves per part. */
+  abstract int movesPerPart();
+
+  /** An estimate (some moves may not be doable). */
+  @Override
+  public long getSize(final ScoreDirector<Layout> scoreDirector) {
+    return (long) scoreDirector.getWorkingSolution().getParts().size() * movesPerPart();
+  }
+
+  /** All moves of all parts in the layout as it is now. */
+  @Override
+  public Iterator<PlacementMove> createOriginalMoveIterator(final ScoreDirector<Layout> scoreDirector) {
+    final Layout layout = scoreDirector.getWorkingSolution();
+    final List<PlacementMove> moves = new ArrayList<>();
+    for (final Part part : layout.getParts()) {
+      if (part.fullyInitialized() && !part.isPinned()) {
+        moves.addAll(moves(layout, part));
+      }
+    }
+    return moves.iterator();
+  }
+
+  /** Never ends. Picks a random part and one of its moves. */
+  @Override
+  public Iterator<PlacementMove> createRandomMoveIterator(final ScoreDirector<Layout> scoreDirector,
+      final Random random) {
+    final Layout layout = scoreDirector.getWorkingSolution();
+    final List<Part> parts = layout.getParts();
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return !parts.isEmpty();
+      }
+
+      @Override
+      public PlacementMove next() {
+        if (parts.isEmpty()) {
+          throw new NoSuchElementException();
+        }
+        final Part part = parts.get(random.nextInt(parts.size()));
+        if (!part.fullyInitialized() || part.isPinned()) {
+          return PlacementMove.position(part, part.getPosition());  // Not doable.
+        }
+        final List<PlacementMove> moves = moves(layout, part);
+        if (moves.isEmpty()) {
+          return PlacementMove.position(part, part.getPosition());  // Not doable.
+        }
+        return moves.get(random.nextInt(moves.size()));
+      }
+    };
+  }
+
+}
@@ -0,0 +1,152 @@
+package se.ltu.kitting.algo.move;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.heuristic.move.AbstractMove;
+import se.ltu.kitting.model.Dimensions;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.Part;
+import se.ltu.kitting.model.Rotation;
+import se.ltu.kitting.model.Side;
+import se.ltu.kitting.model.Surface;
+
+/**
+ * Moves a part to a new placement: side down, rotation and position, all
+ * at once. Only the variables that actually change are touched (and the
+ * score director notified about).
+ */
+public class PlacementMove extends AbstractMove<Layout> {
+
+  private final Part part;
+  private final Side side;
+  private final Rotation rotation;
+  private final Dimensions position;
+
+  public PlacementMove(final Part part, final Side side, final Rotation rotation, final Dimensions position) {
+    this.part = part;
+    this.side = side;
+    this.rotation = rotation;
+    this.position = position;
+  }
+
+  /** Moves the part to this position, keeping its side and rotation. */
+  public static PlacementMove position(final Part part, final Dimensions position) {
+    return new PlacementMove(part, part.getSideDown(), part.getRotation(), position);
+  }
+
+  /**
+   * Moves the part to this side and rotation, with its center as close to
+   * (x, y) on the surface as possible while staying inside the surface.
+   * Returns null if the part does not fit on the surface.
+   */
+  public static PlacementMove centered(final Layout layout, final Part part, final Side side,
+      final Rotation rotation, final int x, final int y, final int surfaceId) {
+    final Surface surface = layout.getWagon().getSurfaceById(surfaceId);
+    final Dimensions size = Rotation.rotation(side, rotation).apply(part.getSize());
+    final int maxX = surface.width() - size.x;
+    final int maxY = surface.depth() - size.y;
+    if (maxX < 0 || maxY < 0 || size.z > surface.height()) {
+      return null;
+    }
+    // Inverse of Part.centerX() and centerY().
+    final int left = Math.max(0, Math.min(x - size.x/2, maxX));
+    final int back = Math.max(0, Math.min(y - size.y/2, maxY));
+    return new PlacementMove(part, side, rotation, Dimensions.of(left, back, surfaceId));
+  }
+
+  public Part part() {
+    return part;
+  }
+
+  public Side side() {
+    return side;
+  }
+
+  public Rotation rotation() {
+    return rotation;
+  }
+
+  public Dimensions position() {
+    return position;
+  }
+
+  @Override
+  public boolean isMoveDoable(final ScoreDirector<Layout> scoreDirector) {
+    return side != part.getSideDown() || !Objects.equals(rotation, part.getRotation())
+      || !Objects.equals(position, part.getPosition());
+  }
+
+  @Override
+  protected PlacementMove createUndoMove(final ScoreDirector<Layout> scoreDirector) {
+    return new PlacementMove(part, part.getSideDown(), part.getRotation(), part.getPosition());
+  }
+
+  @Override
+  protected void doMoveOnGenuineVariables(final ScoreDirector<Layout> scoreDirector) {
+    place(scoreDirector, part, side, rotation, position);
+  }
+
+  /**
+   * Sets the variables of the part that differ, notifying the score director.
+   * Used by everything that places parts (not just moves), so that there is
+   * only one place-and-notify sequence.
+   */
+  public static void place(final ScoreDirector<Layout> scoreDirector, final Part part,
+      final Side side, final Rotation rotation, final Dimensions position) {
+    if (part.getSideDown() != side) {
+      scoreDirector.beforeVariableChanged(part, "sideDown");
+      part.setSideDown(side);
+      scoreDirector.afterVariableChanged(part, "sideDown");
+    }
+    if (!Objects.equals(part.getRotation(), rotation)) {
+      scoreDirector.beforeVariableChanged(part, "rotation");
+      part.setRotation(rotation);
+      scoreDirector.afterVariableChanged(part, "rotation");
+    }
+    if (!Objects.equals(position, part.getPosition())) {
+      scoreDirector.beforeVariableChanged(part, "position");
+      part.setPosition(position);
+      scoreDirector.afterVariableChanged(part, "position");
+    }
+  }
+
+  @Override
+  public PlacementMove rebase(final ScoreDirector<Layout> destinationScoreDirector) {
+    return new PlacementMove(destinationScoreDirector.lookUpWorkingObject(part), side, rotation, position);
+  }
+
+  @Override
+  public Collection<? extends Object> getPlanningEntities() {
+    return List.of(part);
+  }
+
+  @Override
+  public Collection<? extends Object> getPlanningValues() {
+    return Arrays.asList(side, rotation, position);
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (!(o instanceof PlacementMove)) {
+      return false;
+    }
+    final PlacementMove other = (PlacementMove) o;
+    return part == other.part && side == other.side && Objects.equals(rotation, other.rotation)
+      && Objects.equals(position, other.position);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(System.identityHashCode(part), side, rotation, position);
+  }
+
+  @Override
+  public String toString() {
+    return "Part " + part.getId() + " {" + part.getSideDown() + ", " + part.getRotation() + ", "
+      + part.getPosition() + "} -> {" + side + ", " + rotation + ", " + position + "}";
+  }
+
+}
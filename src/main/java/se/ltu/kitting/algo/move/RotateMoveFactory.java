@@ -0,0 +1,31 @@
+package se.ltu.kitting.algo.move;
+
+import java.util.List;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.Part;
+import se.ltu.kitting.model.Rotation;
+
+/**
+ * Flips the rotation of a part between {@link Rotation#ZERO} and
+ * {@link Rotation#Z90}, keeping its center where it is (as far as the
+ * edges of the surface allow).
+ * A plain change of the rotation variable instead keeps the back left
+ * corner in place, so the part swings into its neighbours, and then needs
+ * a separate change move of the position to fix that.
+ */
+public class RotateMoveFactory extends PartMoveFactory {
+
+  @Override
+  int movesPerPart() {
+    return 1;
+  }
+
+  @Override
+  List<PlacementMove> moves(final Layout layout, final Part part) {
+    final Rotation rotation = Rotation.Z90.equals(part.getRotation()) ? Rotation.ZERO : Rotation.Z90;
+    final PlacementMove move = PlacementMove.centered(layout, part, part.getSideDown(), rotation,
+        part.centerX(), part.centerY(), part.surfaceId());
+    return move == null ? List.of() : List.of(move);
+  }
+
+}
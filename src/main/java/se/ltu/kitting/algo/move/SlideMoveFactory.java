@@ -0,0 +1,73 @@
+package se.ltu.kitting.algo.move;
+
+import java.util.ArrayList;
+import java.util.List;
+import se.ltu.kitting.model.Dimensions;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.Part;
+
+/**
+ * Slides a part left (or back) until it touches the nearest part in that
+ * direction (keeping the margin), or the edge of the surface.
+ * This compacts the layout towards the back left corner in a single move,
+ * rather than through many small change moves that do not improve the
+ * score on their own.
+ */
+public class SlideMoveFactory extends PartMoveFactory {
+
+  @Override
+  int movesPerPart() {
+    return 2;
+  }
+
+  @Override
+  List<PlacementMove> moves(final Layout layout, final Part part) {
+    final List<PlacementMove> moves = new ArrayList<>(2);
+    final int left = slideLeft(layout, part);
+    if (left != part.left()) {
+      moves.add(PlacementMove.position(part, Dimensions.of(left, part.back(), part.surfaceId())));
+    }
+    final int back = slideBack(layout, part);
+    if (back != part.back()) {
+      moves.add(PlacementMove.position(part, Dimensions.of(part.left(), back, part.surfaceId())));
+    }
+    return moves;
+  }
+
+  /** The x coordinate where the part would touch something to its left. */
+  static int slideLeft(final Layout layout, final Part part) {
+    int x = 0;
+    for (final Part other : layout.getParts()) {
+      if (!onSameSurface(part, other)) {
+        continue;
+      }
+      final int m = Math.max(part.getMargin(), other.getMargin());
+      final boolean inTheWay = other.back() - m <= part.front() && other.front() + m >= part.back();
+      if (inTheWay && other.right() + m < part.left()) {
+        x = Math.max(x, other.right() + m + 1);
+      }
+    }
+    return x;
+  }
+
+  /** The y coordinate where the part would touch something behind it. */
+  static int slideBack(final Layout layout, final Part part) {
+    int y = 0;
+    for (final Part other : layout.getParts()) {
+      if (!onSameSurface(part, other)) {
+        continue;
+      }
+      final int m = Math.max(part.getMargin(), other.getMargin());
+      final boolean inTheWay = other.left() - m <= part.right() && other.right() + m >= part.left();
+      if (inTheWay && other.front() + m < part.back()) {
+        y = Math.max(y, other.front() + m + 1);
+      }
+    }
+    return y;
+  }
+
+  private static boolean onSameSurface(final Part part, final Part other) {
+    return other != part && other.fullyInitialized() && other.surfaceId() == part.surfaceId();
+  }
+
+}
@@ -0,0 +1,89 @@
+package se.ltu.kitting.algo.move;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.heuristic.move.CompositeMove;
+import org.optaplanner.core.impl.heuristic.move.Move;
+import org.optaplanner.core.impl.heuristic.selector.move.factory.MoveIteratorFactory;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.Part;
+
+/**
+ * Swaps the places of two parts, so that each part is centered where the
+ * other one was (as far as the edges of the surface allow), keeping its
+ * own side down and rotation.
+ * The generic swap move instead swaps the back left corners (or all the
+ * variables at once, so the parts also trade orientations), which rarely
+ * works for parts of different sizes.
+ */
+public class SwapPositionMoveFactory implements MoveIteratorFactory<Layout, Move<Layout>> {
+
+  @Override
+  public long getSize(final ScoreDirector<Layout> scoreDirector) {
+    final long parts = scoreDirector.getWorkingSolution().getParts().size();
+    return parts * (parts - 1) / 2;
+  }
+
+  /** All swaps of two parts in the layout as it is now. */
+  @Override
+  public Iterator<Move<Layout>> createOriginalMoveIterator(final ScoreDirector<Layout> scoreDirector) {
+    final Layout layout = scoreDirector.getWorkingSolution();
+    final List<Part> parts = layout.getParts();
+    final List<Move<Layout>> moves = new ArrayList<>();
+    for (int i = 0; i < parts.size(); i++) {
+      for (int j = i + 1; j < parts.size(); j++) {
+        final Move<Layout> move = swap(layout, parts.get(i), parts.get(j));
+        if (move != null) {
+          moves.add(move);
+        }
+      }
+    }
+    return moves.iterator();
+  }
+
+  /** Never ends. Picks two random parts. */
+  @Override
+  public Iterator<Move<Layout>> createRandomMoveIterator(final ScoreDirector<Layout> scoreDirector,
+      final Random random) {
+    final Layout layout = scoreDirector.getWorkingSolution();
+    final List<Part> parts = layout.getParts();
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return parts.size() > 1;
+      }
+
+      @Override
+      public Move<Layout> next() {
+        if (parts.size() < 2) {
+          throw new NoSuchElementException();
+        }
+        final int i = random.nextInt(parts.size());
+        final int j = (i + 1 + random.nextInt(parts.size() - 1)) % parts.size();
+        final Part part = parts.get(i);
+        final Move<Layout> move = swap(layout, part, parts.get(j));
+        return move != null ? move : PlacementMove.position(part, part.getPosition());  // Not doable.
+      }
+    };
+  }
+
+  /** Returns null if either part is not initialized, is pinned, or does not fit. */
+  static Move<Layout> swap(final Layout layout, final Part a, final Part b) {
+    if (!a.fullyInitialized() || !b.fullyInitialized() || a.isPinned() || b.isPinned()) {
+      return null;
+    }
+    final PlacementMove moveA = PlacementMove.centered(layout, a, a.getSideDown(), a.getRotation(),
+        b.centerX(), b.centerY(), b.surfaceId());
+    final PlacementMove moveB = PlacementMove.centered(layout, b, b.getSideDown(), b.getRotation(),
+        a.centerX(), a.centerY(), a.surfaceId());
+    if (moveA == null || moveB == null) {
+      return null;
+    }
+    return CompositeMove.buildMove(moveA, moveB);
+  }
+
+}
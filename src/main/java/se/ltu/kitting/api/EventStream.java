@@ -0,0 +1,94 @@
+package se.ltu.kitting.api;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Sends the Server-Sent Events of one stream, in order, using a (shared)
+ * executor, so a slow client never holds up the solver or other streams.
+ * <p>
+ * At most one event of each name is waiting to be sent: a newer event
+ * replaces a waiting one with the same name (such as a best solution that
+ * has already been superseded). At most one task of a stream is queued on
+ * the executor at any time, and it sends one event, so the streams take
+ * turns. The data of an event is only created when the event is sent.
+ * Thread-safe.
+ */
+final class EventStream {
+
+  private final SseEmitter emitter;
+  private final Executor sender;
+  /** Events waiting to be sent, in order. Guarded by this. */
+  private final Map<String,Supplier<String>> pending = new LinkedHashMap<>();
+  private boolean scheduled = false;  // Guarded by this.
+  private boolean last = false;  // Guarded by this.
+  private boolean closed = false;  // Guarded by this.
+
+  EventStream(final SseEmitter emitter, final Executor sender) {
+    this.emitter = emitter;
+    this.sender = sender;
+  }
+
+  /** Send this event, unless it is replaced by a newer one with the same name first. */
+  synchronized void send(final String name, final Supplier<String> data) {
+    if (last || closed) {
+      return;
+    }
+    pending.remove(name);  // Keep the events in the order they were sent.
+    pending.put(name, data);
+    schedule();
+  }
+
+  /** Send this event after all waiting events, and then complete the stream. */
+  synchronized void sendLast(final String name, final Supplier<String> data) {
+    send(name, data);
+    last = true;
+  }
+
+  // Guarded by this.
+  private void schedule() {
+    if (!scheduled && !pending.isEmpty()) {
+      scheduled = true;
+      sender.execute(this::sendNext);
+    }
+  }
+
+  private void sendNext() {
+    final String name;
+    final Supplier<String> data;
+    final boolean complete;
+    synchronized (this) {
+      final Iterator<Map.Entry<String,Supplier<String>>> events = pending.entrySet().iterator();
+      final Map.Entry<String,Supplier<String>> event = events.next();
+      events.remove();
+      name = event.getKey();
+      data = event.getValue();
+      complete = last && pending.isEmpty();
+    }
+    try {
+      emitter.send(SseEmitter.event().name(name).data(data.get(), MediaType.APPLICATION_JSON));
+      if (complete) {
+        emitter.complete();
+      }
+    } catch (IOException | IllegalStateException e) {
+      // The client has gone away (or the stream was already completed).
+      synchronized (this) {
+        closed = true;
+        pending.clear();
+      }
+      emitter.completeWithError(e);
+    } finally {
+      synchronized (this) {
+        scheduled = false;
+        schedule();
+      }
+    }
+  }
+
+}
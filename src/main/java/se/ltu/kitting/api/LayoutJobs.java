@@ -0,0 +1,271 @@
+package se.ltu.kitting.api;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import org.optaplanner.core.config.solver.SolverManagerConfig;
+import se.ltu.kitting.LayoutPlanner;
+import se.ltu.kitting.Preprocess;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.util.SolveControl;
+
+/**
+ * Solves requests asynchronously. Submitting a request returns a job
+ * immediately, and the job can then be polled for its status, best score
+ * so far, and (eventually) the response.
+ * <p>
+ * Jobs are solved in the same way as {@link LayoutPlanner#requestLayout}
+ * (see {@link LayoutPlanner#solveRequest}), so they use the solution cache,
+ * warm starts, and so on. A bounded number of jobs are solved at the same
+ * time, and the rest are queued.
+ * Finished jobs are forgotten after a while (see {@link #retention}).
+ */
+public class LayoutJobs implements AutoCloseable {
+
+  /** How long finished jobs are kept by default. */
+  public static final Duration defaultRetention = Duration.ofMinutes(10);
+
+  public enum Status { QUEUED, SOLVING, DONE }
+
+  private final String xml;
+  private final ExecutorService workers;
+  private final Map<Long,Job> jobs = new ConcurrentHashMap<>();
+  private final AtomicLong nextId = new AtomicLong(1);
+  private final Duration retention;
+
+  /**
+   * @param xml the solver config resource
+   * @param parallelSolverCount max number of jobs to solve at the same
+   * time, or "AUTO" to base it on the number of processors (in the same way
+   * as OptaPlanner's solver manager).
+   */
+  public LayoutJobs(final String xml, final String parallelSolverCount, final Duration retention) {
+    final int count = new SolverManagerConfig().withParallelSolverCount(parallelSolverCount)
+      .resolveParallelSolverCount();
+    this.xml = xml;
+    this.workers = Executors.newFixedThreadPool(count, r -> {
+      final Thread thread = new Thread(r, "LayoutJobs");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.retention = retention;
+  }
+
+  /**
+   * Uses the default config, with the number of parallel solvers taken
+   * from the system property {@code kitting.parallelSolvers} (default AUTO).
+   */
+  public static LayoutJobs create() {
+    final String count = System.getProperty("kitting.parallelSolvers", SolverManagerConfig.PARALLEL_SOLVER_COUNT_AUTO);
+    return new LayoutJobs(LayoutPlanner.defaultConfig, count, defaultRetention);
+  }
+
+  /**
+   * Submits the request and returns immediately.
+   * A request with errors (after preprocessing) is done right away.
+   */
+  public Job submit(PlanningRequest request) {
+    purge();
+    final Layout unsolved = request.getLayout();
+    request = Preprocess.preprocess(request, unsolved);
+    // The job can be terminated as soon as it can be looked up.
+    final Job job = new Job(nextId.getAndIncrement(), request);
+    jobs.put(job.id, job);
+    if (request.messages().hasErrors()) {
+      job.finish(PlanningResponse.response(request));
+      return job;
+    }
+    workers.execute(() -> job.run(unsolved));
+    return job;
+  }
+
+  public Optional<Job> job(final long id) {
+    return Optional.ofNullable(jobs.get(id));
+  }
+
+  /**
+   * Stops solving the job, and waits for the solver to stop.
+   * A job that has not started yet is done without a solution.
+   */
+  public Optional<Job> terminate(final long id) {
+    final Optional<Job> job = job(id);
+    job.ifPresent(Job::terminate);
+    return job;
+  }
+
+  /** Number of jobs that are currently known (including finished jobs). */
+  public int size() {
+    return jobs.size();
+  }
+
+  // Forgets jobs that finished too long ago.
+  private void purge() {
+    final long cutoff = System.currentTimeMillis() - retention.toMillis();
+    jobs.values().removeIf(job -> job.finished != 0 && job.finished < cutoff);
+  }
+
+  /** Stops all jobs. Jobs that have not started are done without a solution. */
+  @Override
+  public void close() {
+    workers.shutdownNow();
+    jobs.values().forEach(job -> job.stop());
+  }
+
+  /** Notified of the progress of a job. */
+  public interface Listener {
+    /** A new best solution has been found. */
+    void bestSolutionChanged(Job job, Layout best);
+    /** The job is done, and its response is available. */
+    void done(Job job);
+  }
+
+  public final class Job {
+    private final long id;
+    private final PlanningRequest request;
+    private final long submitted = System.currentTimeMillis();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final SolveControl control = new SolveControl(this::improved);
+    private boolean started = false;  // Guarded by this.
+    private volatile Layout best;
+    private volatile PlanningResponse response;
+    private volatile long finished;
+    private final List<Listener> listeners = new ArrayList<>();
+
+    private Job(final long id, final PlanningRequest request) {
+      this.id = id;
+      this.request = request;
+    }
+
+    private void run(final Layout unsolved) {
+      synchronized (this) {
+        if (response != null) {
+          return;  // Terminated while queued.
+        }
+        started = true;
+      }
+      // Errors are already turned into (error) responses.
+      finish(LayoutPlanner.solveRequest(request, unsolved, xml, control));
+    }
+
+    // Only the first call has any effect.
+    private synchronized void finish(final PlanningResponse response) {
+      if (this.response != null) {
+        return;
+      }
+      this.response = response;
+      this.finished = System.currentTimeMillis();
+      listeners.forEach(listener -> listener.done(this));
+      listeners.clear();
+      done.countDown();
+    }
+
+    // Listeners are only notified when the score changes. (Custom phases can
+    // produce several best solutions with the same score.)
+    private synchronized void improved(final Layout best) {
+      final Layout previous = this.best;
+      if (response != null) {
+        return;
+      }
+      this.best = best;
+      if (previous != null && previous.getScore().equals(best.getScore())) {
+        return;
+      }
+      listeners.forEach(listener -> listener.bestSolutionChanged(this, best));
+    }
+
+    /**
+     * Notify the listener of each new best solution, and when the job is
+     * done. If there already is a best solution, or the job is already done,
+     * the listener is notified of that immediately.
+     */
+    public synchronized void addListener(final Listener listener) {
+      if (best != null) {
+        listener.bestSolutionChanged(this, best);
+      }
+      if (response != null) {
+        listener.done(this);
+      } else {
+        listeners.add(listener);
+      }
+    }
+
+    public synchronized void removeListener(final Listener listener) {
+      listeners.remove(listener);
+    }
+
+    // Stops the solvers (even those that have not started yet), and waits
+    // for them to stop.
+    private void terminate() {
+      stop();
+      try {
+        done.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void stop() {
+      synchronized (this) {
+        if (!started) {
+          finish(PlanningResponse.response(request));
+          return;
+        }
+      }
+      control.terminate();
+    }
+
+    public long id() {
+      return id;
+    }
+
+    public Status status() {
+      if (response != null) {
+        return Status.DONE;
+      }
+      synchronized (this) {
+        return started ? Status.SOLVING : Status.QUEUED;
+      }
+    }
+
+    /** Score of the best solution found so far, if any. */
+    public Optional<HardSoftLongScore> bestScore() {
+      final Layout layout = best;
+      return Optional.ofNullable(layout).map(Layout::getScore);
+    }
+
+    public PlanningRequest request() {
+      return request;
+    }
+
+    /** The response, once the job is done. */
+    public Optional<PlanningResponse> response() {
+      return Optional.ofNullable(response);
+    }
+
+    /** Milliseconds since submission (or until done). */
+    public long elapsedMillis() {
+      final long end = finished != 0 ? finished : System.currentTimeMillis();
+      return end - submitted;
+    }
+
+    /** Waits at most this long for the job to finish. Returns true if done. */
+    public boolean await(final long timeoutMillis) {
+      try {
+        return done.await(timeoutMillis, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return response != null;
+      }
+    }
+  }
+
+}
@@ -69,6 +69,16 @@ public class PlanningResponse {
       .addMessage(Message.info(String.valueOf(solution.getScore())).code("Score"));
   }
 
+  /**
+   * A response for a solution that may not be final (such as an intermediate
+   * best solution). Unlike the other factory methods, this does not add any
+   * messages to the request.
+   */
+  public static PlanningResponse snapshot(PlanningRequest request, Layout solution) {
+    final Messages messages = Messages.empty().merge(request.messages());
+    return response(request.withMessages(messages), solution);
+  }
+
   // FIXME: Needed to allow JsonIO to create a PlanningResponse from JSON. Find a cleaner solution!
   // TODO: include messages
   @Deprecated(forRemoval = true)
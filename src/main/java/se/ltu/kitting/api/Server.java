@@ -2,11 +2,42 @@ package se.ltu.kitting.api;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import se.ltu.kitting.LayoutPlanner;
+import se.ltu.kitting.api.binary.BinaryIO;
+import se.ltu.kitting.api.json.JsonIO;
+import se.ltu.kitting.cache.SolutionStore;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.PositionProvider;
+import se.ltu.kitting.util.SolverFactories;
 
 /**
  * REST endpoint, takes requests and returns responses as JSON.
@@ -16,13 +47,236 @@ import se.ltu.kitting.LayoutPlanner;
 @RestController
 public class Server {
 
+  private static final MediaType binary = MediaType.parseMediaType(BinaryIO.mediaType);
+  /** Upper bound on how long a poll may wait for a job to finish. */
+  private static final long maxWaitMillis = 30_000;
+
+  /** Threads that send the Server-Sent Events of all streams. */
+  private static final int eventSenderCount = Integer.getInteger("kitting.eventSenders", 4);
+
+  private final LayoutJobs jobs;
+  private final ExecutorService eventSenders = Executors.newFixedThreadPool(eventSenderCount, r -> {
+    final Thread thread = new Thread(r, "Server-events");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public Server(final LayoutJobs jobs) {
+    this.jobs = jobs;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    eventSenders.shutdownNow();
+  }
+
+  @Bean
+  public static LayoutJobs layoutJobs() {
+    return LayoutJobs.create();
+  }
+
   public static void main(String[] args) {
+    SolverFactories.preload(LayoutPlanner.defaultConfig);
     SpringApplication.run(Server.class, args);
   }
 
+  /**
+   * Reads the request from, and writes the response to, the HTTP streams.
+   * The request is binary (see {@link BinaryIO}) if its content type is
+   * {@value BinaryIO#mediaType}, and JSON otherwise. The response is in the
+   * format the client accepts, preferring the format of the request.
+   */
   @PostMapping("/requestLayout")
-  public String requestLayout(@RequestBody String json) {
-    return LayoutPlanner.jsonResponse(json);
+  public void requestLayout(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    final boolean binaryRequest = isBinary(request.getContentType());
+    final PlanningRequest planningRequest = binaryRequest
+      ? BinaryIO.request(request.getInputStream())
+      : JsonIO.request(jsonReader(request));
+    final PlanningResponse planningResponse = LayoutPlanner.requestLayout(planningRequest);
+    if (binaryResponse(request.getHeader(HttpHeaders.ACCEPT), binaryRequest)) {
+      response.setContentType(BinaryIO.mediaType);
+      BinaryIO.writeResponse(planningResponse, response.getOutputStream());
+    } else {
+      JsonIO.writeResponse(planningResponse, jsonWriter(response));
+    }
+  }
+
+  private static boolean isBinary(final String contentType) {
+    return contentType != null && MediaType.parseMediaType(contentType).isCompatibleWith(binary);
+  }
+
+  // Binary if explicitly accepted (and preferred over JSON), or if the
+  // request was binary and the client accepts anything.
+  private static boolean binaryResponse(final String accept, final boolean binaryRequest) {
+    if (accept == null || accept.isBlank()) {
+      return binaryRequest;
+    }
+    final List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+    MediaType.sortBySpecificityAndQuality(accepted);
+    for (final MediaType type : accepted) {
+      if (type.equals(MediaType.ALL)) {
+        return binaryRequest;
+      }
+      if (type.isCompatibleWith(binary)) {
+        return true;
+      }
+      if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+        return false;
+      }
+    }
+    return binaryRequest;
+  }
+
+  /**
+   * Solves a batch of requests concurrently.
+   * @see se.ltu.kitting.api.json.BatchPlanningRequest
+   * @see se.ltu.kitting.api.json.BatchPlanningResponse
+   */
+  @PostMapping("/requestLayout/batch")
+  public void requestLayouts(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    LayoutPlanner.jsonBatchResponse(jsonReader(request), jsonWriter(response));
+  }
+
+  // JSON is UTF-8 unless the request says otherwise.
+  private static Reader jsonReader(final HttpServletRequest request) throws IOException {
+    final String charset = request.getCharacterEncoding();
+    return new BufferedReader(new InputStreamReader(request.getInputStream(),
+          charset == null ? StandardCharsets.UTF_8 : Charset.forName(charset)));
+  }
+
+  private static Writer jsonWriter(final HttpServletResponse response) throws IOException {
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    return response.getWriter();
+  }
+
+  /**
+   * Solves the request and streams each new best solution as a
+   * {@code bestSolution} Server-Sent Event. The final solution is sent as a
+   * {@code result} event, after which the stream is closed.
+   * @see #streamEvents(LayoutJobs.Job)
+   */
+  @PostMapping(path = "/requestLayout/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter requestLayoutStream(@RequestBody String json) {
+    return streamEvents(jobs.submit(JsonIO.request(json)));
+  }
+
+  /** Streams the best solutions of an existing job, like /requestLayout/stream. */
+  @GetMapping(path = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public ResponseEntity<SseEmitter> jobEvents(@PathVariable("id") long id) {
+    return jobs.job(id)
+      .map(job -> ResponseEntity.ok(streamEvents(job)))
+      .orElse(ResponseEntity.notFound().build());
+  }
+
+  /**
+   * Each event carries the score and the response (in the same format as
+   * /requestLayout) for that solution.
+   * Events are sent by a separate thread, so a slow client never holds up
+   * the solver, and a best solution that is superseded before it has been
+   * sent is skipped.
+   * @see EventStream
+   */
+  private SseEmitter streamEvents(final LayoutJobs.Job job) {
+    final SseEmitter emitter = new SseEmitter(0L);  // No timeout.
+    final EventStream events = new EventStream(emitter, eventSenders);
+    final LayoutJobs.Listener listener = new LayoutJobs.Listener() {
+      @Override
+      public void bestSolutionChanged(LayoutJobs.Job job, Layout best) {
+        events.send("bestSolution", () ->
+            JsonIO.toJson(PlanningResponse.snapshot(job.request(), best), best.getScore()));
+      }
+      @Override
+      public void done(LayoutJobs.Job job) {
+        events.sendLast("result", () ->
+            JsonIO.toJson(job.response().get(), job.bestScore().orElse(null)));
+      }
+    };
+    final Runnable unsubscribe = () -> job.removeListener(listener);
+    emitter.onCompletion(unsubscribe);
+    emitter.onTimeout(unsubscribe);
+    emitter.onError(e -> unsubscribe.run());
+    job.addListener(listener);
+    return emitter;
+  }
+
+  /** Submits a request for asynchronous solving. Returns the job ID. */
+  @PostMapping("/jobs")
+  public Map<String,Object> submitJob(@RequestBody String json) {
+    return jobStatus(jobs.submit(JsonIO.request(json)));
+  }
+
+  /**
+   * Status and best score so far of a job.
+   * Waits up to {@code waitMillis} for the job to finish (long polling).
+   */
+  @GetMapping("/jobs/{id}")
+  public ResponseEntity<Map<String,Object>> jobStatus(@PathVariable("id") long id,
+      @RequestParam(name = "waitMillis", defaultValue = "0") long waitMillis) {
+    return jobs.job(id)
+      .map(job -> {
+        job.await(Math.min(waitMillis, maxWaitMillis));
+        return ResponseEntity.ok(jobStatus(job));
+      })
+      .orElse(ResponseEntity.notFound().build());
+  }
+
+  /**
+   * The response of a finished job (same format as /requestLayout), or
+   * 202 Accepted if it is not done yet.
+   * Waits up to {@code waitMillis} for the job to finish (long polling).
+   */
+  @GetMapping("/jobs/{id}/result")
+  public ResponseEntity<String> jobResult(@PathVariable("id") long id,
+      @RequestParam(name = "waitMillis", defaultValue = "0") long waitMillis) {
+    return jobs.job(id)
+      .map(job -> {
+        job.await(Math.min(waitMillis, maxWaitMillis));
+        return job.response()
+          .map(response -> ResponseEntity.ok(JsonIO.toJson(response)))
+          .orElse(ResponseEntity.status(HttpStatus.ACCEPTED).build());
+      })
+      .orElse(ResponseEntity.notFound().build());
+  }
+
+  /**
+   * Stops solving the job early. The best solution so far becomes the
+   * result. A job that has not started yet is done without a solution.
+   */
+  @DeleteMapping("/jobs/{id}")
+  public ResponseEntity<Map<String,Object>> terminateJob(@PathVariable("id") long id) {
+    return jobs.terminate(id)
+      .map(job -> ResponseEntity.ok(jobStatus(job)))
+      .orElse(ResponseEntity.notFound().build());
+  }
+
+  private static Map<String,Object> jobStatus(final LayoutJobs.Job job) {
+    final Map<String,Object> status = new LinkedHashMap<>();
+    status.put("jobId", job.id());
+    status.put("status", job.status());
+    status.put("bestScore", job.bestScore().map(String::valueOf).orElse(null));
+    status.put("elapsedMillis", job.elapsedMillis());
+    return status;
+  }
+
+  @GetMapping("/stats/solutionCache")
+  public Map<String,Number> solutionCacheStats() {
+    return LayoutPlanner.solutionCache().stats();
+  }
+
+  @GetMapping("/stats/solutionStore")
+  public Map<String,Number> solutionStoreStats() {
+    return LayoutPlanner.solutionStore().map(SolutionStore::stats).orElse(Map.of());
+  }
+
+  @GetMapping("/stats/warmStart")
+  public Map<String,Number> warmStartStats() {
+    return LayoutPlanner.recentSolutions().stats();
+  }
+
+  @GetMapping("/stats/positionRanges")
+  public Map<String,Number> positionRangeStats() {
+    return PositionProvider.cache().stats();
   }
 
 }
@@ -0,0 +1,439 @@
+package se.ltu.kitting.api.binary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import se.ltu.kitting.api.Message;
+import se.ltu.kitting.api.PlanningRequest;
+import se.ltu.kitting.api.PlanningResponse;
+import se.ltu.kitting.api.json.JsonIO;
+import se.ltu.kitting.api.json.LayoutPlanningResponse;
+import se.ltu.kitting.model.Dimensions;
+import se.ltu.kitting.model.LayoutHint;
+import se.ltu.kitting.model.Part;
+import se.ltu.kitting.model.Rotation;
+import se.ltu.kitting.model.Side;
+import se.ltu.kitting.model.Surface;
+import se.ltu.kitting.model.WagonHint;
+
+/**
+ * A compact binary alternative to {@link JsonIO}, for machine-to-machine
+ * calls. Carries the same information as the JSON requests and responses,
+ * and decodes to the same domain model (and, for responses, the same
+ * {@link LayoutPlanningResponse}) as the JSON path.
+ * <p>
+ * Both formats start with a magic number and a version byte. Integers are
+ * zigzag encoded varints (1 byte for -64..63), strings are UTF-8 prefixed by
+ * their length + 1 (0 means null), enums are their ordinal + 1 (0 means
+ * null), and optional values are prefixed by a presence byte. Lists are
+ * prefixed by their length.
+ * <pre>
+ * request:  "KREQ" version kit wagonHint? parts
+ * kit:      kitId chassisId side
+ * wagonHint: wagon weightFactor
+ * wagon:    wagonId capabilities dimensions surfaces
+ * surface:  id dimensions origin
+ * part:     id partNumber size allowedDown(length + 1, 0 means null)
+ *           preferredDown margin hint?           (in requests)
+ * hint:     center surfaceId rotation? side weight
+ * response: "KRES" version kit parts wagon messages?
+ * part:     id partNumber layout? messages?   (in responses)
+ * layout:   surfaceId origin orientation rotation
+ * message:  message severity code
+ * </pre>
+ * The margin is included, even though the JSON path currently ignores it.
+ * Hint rotations other than 0 and 90 are reported exactly as by
+ * {@link JsonIO#request(String)}.
+ * <p>
+ * I/O errors are thrown as {@link UncheckedIOException}s, and malformed
+ * input as {@link IllegalArgumentException}s.
+ */
+public class BinaryIO {
+
+  /** Content type of both requests and responses. */
+  public static final String mediaType = "application/x-kitting-layout";
+
+  private static final int requestMagic = 0x4b524551;   // "KREQ"
+  private static final int responseMagic = 0x4b524553;  // "KRES"
+  private static final int version = 1;
+
+  private static final Side[] sides = Side.values();
+  private static final Message.Severity[] severities = Message.Severity.values();
+
+  // ---- Requests ----
+
+  public static byte[] toBinary(final PlanningRequest request) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    writeRequest(request, bytes);
+    return bytes.toByteArray();
+  }
+
+  public static void writeRequest(final PlanningRequest request, final OutputStream out) {
+    try {
+      final DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+      data.writeInt(requestMagic);
+      data.writeByte(version);
+      writeKit(data, request.kit());
+      final Optional<WagonHint> wagonHint = request.wagonHint();
+      data.writeBoolean(wagonHint.isPresent());
+      if (wagonHint.isPresent()) {
+        writeWagon(data, wagonHint.get().wagon());
+        writeInt(data, wagonHint.get().weightFactor());
+      }
+      final List<Part> parts = request.parts();
+      writeInt(data, parts.size());
+      for (final Part part : parts) {
+        writePart(data, part);
+      }
+      data.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static PlanningRequest request(final byte[] bytes) {
+    return request(new ByteArrayInputStream(bytes));
+  }
+
+  public static PlanningRequest request(final InputStream in) {
+    try {
+      final DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+      readHeader(data, requestMagic);
+      final var kit = readKit(data);
+      Optional<WagonHint> wagonHint = Optional.empty();
+      if (data.readBoolean()) {
+        final var wagon = readWagon(data);
+        wagonHint = Optional.of(new WagonHint(wagon, readInt(data)));
+      }
+      final int n = readLength(data);
+      final List<Part> parts = new ArrayList<>();
+      final List<Integer> unsupportedRotations = new ArrayList<>();
+      for (int i = 0; i < n; i++) {
+        parts.add(readPart(data, unsupportedRotations));
+      }
+      final var result = new PlanningRequest(kit, parts, wagonHint);
+      for (final int id : unsupportedRotations) {
+        result.messages().add(id, Message.warn("Only 0 and 90 degrees currently supported."));
+      }
+      return result;
+    } catch (EOFException e) {
+      throw new IllegalArgumentException("Truncated request", e);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void writeKit(final DataOutputStream data, final se.ltu.kitting.model.Kit kit) throws IOException {
+    writeString(data, kit.kitId());
+    writeString(data, kit.chassisId());
+    writeEnum(data, kit.side());
+  }
+
+  private static se.ltu.kitting.model.Kit readKit(final DataInputStream data) throws IOException {
+    return new se.ltu.kitting.model.Kit(readString(data), readString(data), readEnum(data, sides));
+  }
+
+  private static void writeWagon(final DataOutputStream data, final se.ltu.kitting.model.Wagon wagon) throws IOException {
+    writeString(data, wagon.wagonId());
+    writeStrings(data, wagon.capabilities());
+    writeDimensions(data, wagon.dimensions());
+    writeInt(data, wagon.surfaces().size());
+    for (final Surface surface : wagon.surfaces()) {
+      writeInt(data, surface.id);
+      writeDimensions(data, surface.dimensions);
+      writeDimensions(data, surface.origin);
+    }
+  }
+
+  private static se.ltu.kitting.model.Wagon readWagon(final DataInputStream data) throws IOException {
+    final String id = readString(data);
+    final List<String> capabilities = readStrings(data);
+    final Dimensions dimensions = readDimensions(data);
+    final int n = readLength(data);
+    final List<Surface> surfaces = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      final int surfaceId = readInt(data);
+      final Dimensions size = readDimensions(data);
+      surfaces.add(Surface.surface(surfaceId, size, readDimensions(data)));
+    }
+    return se.ltu.kitting.model.Wagon.of(id, surfaces)
+      .withCapabilities(capabilities)
+      .withDimensions(dimensions);
+  }
+
+  private static void writePart(final DataOutputStream data, final Part part) throws IOException {
+    writeInt(data, part.getId());
+    writeString(data, part.getPartNumber());
+    writeDimensions(data, part.getSize());
+    final List<Side> allowed = part.getAllowedDown();
+    writeInt(data, allowed == null ? 0 : allowed.size() + 1);
+    if (allowed != null) {
+      for (final Side side : allowed) {
+        writeEnum(data, side);
+      }
+    }
+    writeEnum(data, part.getPreferredDown());
+    writeInt(data, part.getMargin());
+    final LayoutHint hint = part.getHint();
+    data.writeBoolean(hint != null);
+    if (hint != null) {
+      writeDimensions(data, hint.centerPosition());
+      writeInt(data, hint.surfaceId());
+      data.writeBoolean(hint.rotation().isPresent());
+      if (hint.rotation().isPresent()) {
+        writeInt(data, hint.rotation().get().z);
+      }
+      writeEnum(data, hint.side().orElse(null));
+      writeInt(data, hint.weight());
+    }
+  }
+
+  private static Part readPart(final DataInputStream data, final List<Integer> unsupportedRotations) throws IOException {
+    final int id = readInt(data);
+    final String partNumber = readString(data);
+    final Part part = new Part(id, partNumber, readDimensions(data));
+    final int allowed = readLength(data);
+    if (allowed > 0) {
+      final List<Side> allowedDown = new ArrayList<>();
+      for (int i = 1; i < allowed; i++) {
+        allowedDown.add(readEnum(data, sides));
+      }
+      part.setAllowedDown(allowedDown);
+    }
+    part.setPreferredDown(readEnum(data, sides));
+    part.setMargin(readInt(data));
+    if (data.readBoolean()) {
+      final Dimensions center = readDimensions(data);
+      LayoutHint hint = LayoutHint.hint(center, readInt(data));
+      if (data.readBoolean()) {
+        final int z = readInt(data);
+        if (z != 0 && z != 90) {
+          unsupportedRotations.add(id);
+        }
+        hint = hint.withRotation(Rotation.of(z));
+      }
+      hint = hint.withSide(readEnum(data, sides));
+      part.setHint(hint.withWeight(readInt(data)));
+    }
+    return part;
+  }
+
+  // ---- Responses ----
+
+  public static byte[] toBinary(final PlanningResponse response) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    writeResponse(response, bytes);
+    return bytes.toByteArray();
+  }
+
+  /** Writes the same information as {@link JsonIO#writeResponse}. */
+  public static void writeResponse(final PlanningResponse res, final OutputStream out) {
+    try {
+      final DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+      data.writeInt(responseMagic);
+      data.writeByte(version);
+      writeKit(data, res.request().kit());
+      final List<Part> parts = res.parts();
+      writeInt(data, parts.size());
+      for (final Part part : parts) {
+        writeInt(data, part.getId());
+        writeString(data, part.getPartNumber());
+        final var layout = JsonIO.partLayout(part, res.solution());
+        data.writeBoolean(layout != null);
+        if (layout != null) {
+          writeInt(data, layout.surfaceId);
+          writeDimensions(data, layout.origin);
+          writeEnum(data, layout.orientation);
+          writeInt(data, layout.rotation);
+        }
+        writeMessages(data, res.messages().partMessages(part.getId()));
+      }
+      writeWagon(data, res.request().wagonHint().get().wagon());
+      writeMessages(data, res.messages().globalMessages());
+      data.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static LayoutPlanningResponse response(final byte[] bytes) {
+    return response(new ByteArrayInputStream(bytes));
+  }
+
+  /**
+   * Reads a response into the same representation as the JSON response
+   * would be parsed into.
+   */
+  public static LayoutPlanningResponse response(final InputStream in) {
+    try {
+      final DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+      readHeader(data, responseMagic);
+      final LayoutPlanningResponse response = new LayoutPlanningResponse();
+      response.kit = JsonIO.fromModel(readKit(data));
+      final int n = readLength(data);
+      response.parts = new ArrayList<>();
+      for (int i = 0; i < n; i++) {
+        final var part = new LayoutPlanningResponse.Part();
+        part.id = readInt(data);
+        part.partNumber = readString(data);
+        if (data.readBoolean()) {
+          part.layout = new LayoutPlanningResponse.Part.Layout();
+          part.layout.surfaceId = readInt(data);
+          part.layout.origin = readDimensions(data);
+          part.layout.orientation = readEnum(data, sides);
+          part.layout.rotation = readInt(data);
+        }
+        part.messagesToDisplay = readMessages(data);
+        response.parts.add(part);
+      }
+      response.wagon = JsonIO.fromModel(readWagon(data));
+      response.messagesToDisplay = readMessages(data);
+      return response;
+    } catch (EOFException e) {
+      throw new IllegalArgumentException("Truncated response", e);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void writeMessages(final DataOutputStream data, final Optional<List<Message>> messages) throws IOException {
+    data.writeBoolean(messages.isPresent());
+    if (messages.isPresent()) {
+      writeInt(data, messages.get().size());
+      for (final Message message : messages.get()) {
+        writeString(data, message.message());
+        writeEnum(data, message.severity());
+        writeString(data, message.code());
+      }
+    }
+  }
+
+  private static List<Message> readMessages(final DataInputStream data) throws IOException {
+    if (!data.readBoolean()) {
+      return null;
+    }
+    final int n = readLength(data);
+    final List<Message> messages = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      final String text = readString(data);
+      final Message.Severity severity = readEnum(data, severities);
+      messages.add(Message.info(text).severity(severity).code(readString(data)));
+    }
+    return messages;
+  }
+
+  // ---- Primitives ----
+
+  private static void readHeader(final DataInputStream data, final int magic) throws IOException {
+    if (data.readInt() != magic) {
+      throw new IllegalArgumentException("Not a binary kitting " + (magic == requestMagic ? "request" : "response"));
+    }
+    final int v = data.readUnsignedByte();
+    if (v != version) {
+      throw new IllegalArgumentException("Unsupported version: " + v);
+    }
+  }
+
+  private static void writeDimensions(final DataOutputStream data, final Dimensions d) throws IOException {
+    writeInt(data, d.x);
+    writeInt(data, d.y);
+    writeInt(data, d.z);
+  }
+
+  private static Dimensions readDimensions(final DataInputStream data) throws IOException {
+    final int x = readInt(data);
+    final int y = readInt(data);
+    return Dimensions.of(x, y, readInt(data));
+  }
+
+  private static void writeStrings(final DataOutputStream data, final List<String> strings) throws IOException {
+    writeInt(data, strings.size());
+    for (final String s : strings) {
+      writeString(data, s);
+    }
+  }
+
+  private static List<String> readStrings(final DataInputStream data) throws IOException {
+    final int n = readLength(data);
+    final List<String> strings = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      strings.add(readString(data));
+    }
+    return strings;
+  }
+
+  private static void writeString(final DataOutputStream data, final String s) throws IOException {
+    if (s == null) {
+      writeInt(data, 0);
+      return;
+    }
+    final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    writeInt(data, bytes.length + 1);
+    data.write(bytes);
+  }
+
+  private static String readString(final DataInputStream data) throws IOException {
+    final int length = readLength(data);
+    if (length == 0) {
+      return null;
+    }
+    final byte[] bytes = new byte[length - 1];
+    data.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeEnum(final DataOutputStream data, final Enum<?> value) throws IOException {
+    data.writeByte(value == null ? 0 : value.ordinal() + 1);
+  }
+
+  private static <E> E readEnum(final DataInputStream data, final E[] values) throws IOException {
+    final int i = data.readUnsignedByte();
+    if (i > values.length) {
+      throw new IllegalArgumentException("Illegal enum value: " + (i - 1));
+    }
+    return i == 0 ? null : values[i - 1];
+  }
+
+  /** Zigzag varint. */
+  private static void writeInt(final DataOutputStream data, final int value) throws IOException {
+    int v = (value << 1) ^ (value >> 31);
+    while ((v & ~0x7f) != 0) {
+      data.writeByte((v & 0x7f) | 0x80);
+      v >>>= 7;
+    }
+    data.writeByte(v);
+  }
+
+  private static int readInt(final DataInputStream data) throws IOException {
+    int v = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      final int b = data.readUnsignedByte();
+      v |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return (v >>> 1) ^ -(v & 1);
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+
+  private static int readLength(final DataInputStream data) throws IOException {
+    final int length = readInt(data);
+    if (length < 0) {
+      throw new IllegalArgumentException("Illegal length: " + length);
+    }
+    return length;
+  }
+
+}
@@ -0,0 +1,22 @@
+package se.ltu.kitting.api.json;
+
+import java.util.List;
+
+/**
+ * Low-level representation of an incoming batch of requests, mirroring the
+ * JSON schema.
+<p>
+<pre>
+{
+  requests: [                   // required (minimum 1 request)
+    LayoutPlanningRequest,
+  ],
+}
+</pre>
+ * @see LayoutPlanningRequest
+ */
+public class BatchPlanningRequest {
+
+  public List<LayoutPlanningRequest> requests;
+
+}
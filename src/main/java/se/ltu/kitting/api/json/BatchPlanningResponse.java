@@ -0,0 +1,35 @@
+package se.ltu.kitting.api.json;
+
+import java.util.List;
+
+/**
+ * Low-level representation of an outgoing batch of responses, mirroring the
+ * JSON schema. There is one response per request, in the same order as the
+ * requests.
+<p>
+<pre>
+{
+  responses: [
+    {
+      index: integer,               // position of the request in the batch
+      timeMillis: integer,          // time spent on this request
+      response: LayoutPlanningResponse,
+    },
+  ],
+  totalMillis: integer,           // time spent on the whole batch
+}
+</pre>
+ * @see LayoutPlanningResponse
+ */
+public class BatchPlanningResponse {
+
+  public List<Response> responses;
+  public long totalMillis;
+
+  public static class Response {
+    public int index;
+    public long timeMillis;
+    public LayoutPlanningResponse response;
+  }
+
+}
@@ -1,9 +1,19 @@
 package se.ltu.kitting.api.json;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Optional;
 import com.google.gson.*;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import se.ltu.kitting.api.json.LayoutPlanningResponse; // JSON data
 import se.ltu.kitting.api.json.LayoutPlanningRequest;  // JSON data
 import se.ltu.kitting.api.PlanningResponse;     // domain model
@@ -17,19 +27,88 @@ import se.ltu.kitting.model.Rotation;
 import se.ltu.kitting.model.WagonHint;
 import se.ltu.kitting.model.Surface;
 import se.ltu.kitting.model.Side;
+import ch.rfin.util.Pair;
 
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 
+/**
+ * Translation between JSON and the domain model.
+ * <p>
+ * Requests and responses can be read from a {@link Reader} and written to a
+ * {@link Writer} as streams, so a (batch) request or response is never held
+ * in memory as a string and as a tree of JSON data at the same time as the
+ * domain model. Only small objects (such as a single part or the wagon) are
+ * read into or written from their intermediate representation.
+ * The string based methods produce the same results.
+ */
 public class JsonIO {
 
   private static final Gson gson = new Gson();
+  private static final Type messagesType = new TypeToken<List<Message>>(){}.getType();
 
   public static PlanningRequest request(String json) {
-    // Convert string to intermediate representation holding all the JSON data.
-    LayoutPlanningRequest req = gson.fromJson(json, LayoutPlanningRequest.class);
-    // Then use intermediate representation to create domain model object.
-    return request(req);
+    return request(new StringReader(json));
+  }
+
+  /**
+   * Reads a request from the stream, converting each part to the domain
+   * model as soon as it has been read.
+   */
+  public static PlanningRequest request(Reader json) {
+    try {
+      return readRequest(newJsonReader(json));
+    } catch (IOException e) {
+      throw new JsonIOException(e);
+    }
+  }
+
+  private static PlanningRequest readRequest(JsonReader reader) throws IOException {
+    Kit kit = null;
+    LayoutPlanningRequest.WagonHint wagonHint = null;
+    List<Part> parts = null;
+    final List<Integer> unsupportedRotations = new ArrayList<>();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "kit":
+          kit = gson.fromJson(reader, Kit.class);
+          break;
+        case "wagonHint":
+          wagonHint = gson.fromJson(reader, LayoutPlanningRequest.WagonHint.class);
+          break;
+        case "parts":
+          parts = readParts(reader, unsupportedRotations);
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    final Optional<WagonHint> hint = Optional.ofNullable(wagonHint).map(JsonIO::toModel);
+    final var result = new PlanningRequest(toModel(kit), parts, hint);
+    for (final int id : unsupportedRotations) {
+      result.messages().add(id, unsupportedRotation());
+    }
+    return result;
+  }
+
+  private static List<Part> readParts(JsonReader reader, List<Integer> unsupportedRotations) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return null;
+    }
+    final List<Part> parts = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      final LayoutPlanningRequest.Part part = gson.fromJson(reader, LayoutPlanningRequest.Part.class);
+      parts.add(toModel(part));
+      if (!supportedRotation(part)) {
+        unsupportedRotations.add(part.id);
+      }
+    }
+    reader.endArray();
+    return parts;
   }
 
   public static PlanningRequest request(LayoutPlanningRequest req) {
@@ -41,21 +120,123 @@ public class JsonIO {
     return validateRequest(req, result);
   }
 
+  public static List<PlanningRequest> batchRequest(String json) {
+    return batchRequest(new StringReader(json));
+  }
+
+  /**
+   * Reads a batch of requests from the stream, converting each request to
+   * the domain model as soon as it has been read.
+   */
+  public static List<PlanningRequest> batchRequest(Reader json) {
+    try {
+      final JsonReader reader = newJsonReader(json);
+      List<PlanningRequest> requests = null;
+      if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+        reader.beginObject();
+        while (reader.hasNext()) {
+          if (reader.nextName().equals("requests") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+            requests = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+              requests.add(readRequest(reader));
+            }
+            reader.endArray();
+          } else {
+            reader.skipValue();
+          }
+        }
+        reader.endObject();
+      }
+      if (requests == null) {
+        throw new IllegalArgumentException("Batch has no requests");
+      }
+      return requests;
+    } catch (IOException e) {
+      throw new JsonIOException(e);
+    }
+  }
+
   private static PlanningRequest validateRequest(LayoutPlanningRequest req, PlanningRequest result) {
     for (var p : req.parts) {
-      if (p.layoutHint == null) {
-        continue;
-      }
-      int z = (int) p.layoutHint.rotation;
-      if (z != 0 && z != 90) {
-        result.messages().addMessage((int) p.id, Message.warn("Only 0 and 90 degrees currently supported."));
+      if (!supportedRotation(p)) {
+        result.messages().addMessage((int) p.id, unsupportedRotation());
       }
     }
     return result;
   }
 
+  private static boolean supportedRotation(LayoutPlanningRequest.Part p) {
+    if (p.layoutHint == null) {
+      return true;
+    }
+    int z = (int) p.layoutHint.rotation;
+    return z == 0 || z == 90;
+  }
+
+  private static Message unsupportedRotation() {
+    return Message.warn("Only 0 and 90 degrees currently supported.");
+  }
+
+  // Lenient, like Gson.fromJson(String).
+  private static JsonReader newJsonReader(Reader json) {
+    final JsonReader reader = gson.newJsonReader(json);
+    reader.setLenient(true);
+    return reader;
+  }
+
   public static String toJson(PlanningResponse res) {
-    return toJson(response(res));
+    final StringWriter json = new StringWriter();
+    writeResponse(res, json);
+    return json.toString();
+  }
+
+  /**
+   * Writes the response to the stream (in the same format as
+   * {@link #response(PlanningResponse)}), straight from the domain model.
+   */
+  public static void writeResponse(PlanningResponse res, Writer out) {
+    try {
+      final JsonWriter writer = gson.newJsonWriter(out);
+      writeResponse(res, writer);
+      writer.flush();
+    } catch (IOException e) {
+      throw new JsonIOException(e);
+    }
+  }
+
+  // Same fields, in the same order, as LayoutPlanningResponse.
+  // Null values are left out, like Gson does by default.
+  private static void writeResponse(PlanningResponse res, JsonWriter writer) throws IOException {
+    writer.beginObject();
+    writer.name("kit");
+    gson.toJson(fromModel(res.request().kit()), Kit.class, writer);
+    writer.name("parts").beginArray();
+    for (var part : res.parts()) {
+      writer.beginObject();
+      writer.name("id").value(part.getId());
+      writer.name("partNumber").value(part.getPartNumber());
+      final var layout = partLayout(part, res.solution());
+      if (layout != null) {
+        writer.name("layout");
+        gson.toJson(layout, LayoutPlanningResponse.Part.Layout.class, writer);
+      }
+      final var messages = res.messages().partMessages(part.getId());
+      if (messages.isPresent()) {
+        writer.name("messagesToDisplay");
+        gson.toJson(messages.get(), messagesType, writer);
+      }
+      writer.endObject();
+    }
+    writer.endArray();
+    writer.name("wagon");
+    gson.toJson(fromModel(res.request().wagonHint().get().wagon()), Wagon.class, writer);
+    final var messages = res.messages().globalMessages();
+    if (messages.isPresent()) {
+      writer.name("messagesToDisplay");
+      gson.toJson(messages.get(), messagesType, writer);
+    }
+    writer.endObject();
   }
 
   public static LayoutPlanningResponse response(PlanningResponse res) {
@@ -82,6 +263,73 @@ public class JsonIO {
     return gson.toJson(res);
   }
 
+  /**
+   * The responses (with the time spent on each) to a batch of requests,
+   * in the same order as the requests.
+   */
+  public static BatchPlanningResponse batchResponse(List<Pair<PlanningResponse,Long>> responses, long totalMillis) {
+    final var batch = new BatchPlanningResponse();
+    batch.responses = new ArrayList<>();
+    for (int i = 0; i < responses.size(); i++) {
+      final var result = new BatchPlanningResponse.Response();
+      result.index = i;
+      result.response = response(responses.get(i)._1);
+      result.timeMillis = responses.get(i)._2;
+      batch.responses.add(result);
+    }
+    batch.totalMillis = totalMillis;
+    return batch;
+  }
+
+  public static String toJson(BatchPlanningResponse res) {
+    return gson.toJson(res);
+  }
+
+  /**
+   * Writes the responses to a batch of requests to the stream (in the same
+   * format as {@link #batchResponse(List, long)}), one at a time.
+   */
+  public static void writeBatchResponse(List<Pair<PlanningResponse,Long>> responses, long totalMillis, Writer out) {
+    try {
+      final JsonWriter writer = gson.newJsonWriter(out);
+      writer.beginObject();
+      writer.name("responses").beginArray();
+      for (int i = 0; i < responses.size(); i++) {
+        writer.beginObject();
+        writer.name("index").value(i);
+        writer.name("timeMillis").value(responses.get(i)._2);
+        writer.name("response");
+        writeResponse(responses.get(i)._1, writer);
+        writer.endObject();
+      }
+      writer.endArray();
+      writer.name("totalMillis").value(totalMillis);
+      writer.endObject();
+      writer.flush();
+    } catch (IOException e) {
+      throw new JsonIOException(e);
+    }
+  }
+
+  /**
+   * A solution update (such as a new best solution), as a JSON object with
+   * the score and the response for that solution.
+   */
+  public static String toJson(PlanningResponse res, Object score) {
+    final StringWriter json = new StringWriter();
+    try {
+      final JsonWriter writer = gson.newJsonWriter(json);
+      writer.beginObject();
+      writer.name("score").value(score == null ? null : String.valueOf(score));
+      writer.name("response");
+      writeResponse(res, writer);
+      writer.endObject();
+    } catch (IOException e) {
+      throw new JsonIOException(e);
+    }
+    return json.toString();
+  }
+
   public static LayoutPlanningRequest.Part fromModel(final Part partModel) {
     final var part = new LayoutPlanningRequest.Part();
     part.dimensions = partModel.getSize();
@@ -93,19 +341,20 @@ public class JsonIO {
     //part.requiredCapabilities = ...
     //part.weight = ...
 
-    final var layoutHint = new LayoutPlanningRequest.Part.LayoutHint();
+    // A part without a hint must not get an (empty) hint when parsed again.
     if (partModel.hasHint()) {
+      final var layoutHint = new LayoutPlanningRequest.Part.LayoutHint();
       final var hint = partModel.getHint();
       layoutHint.orientation = hint.side().orElse(null);
       layoutHint.origin = hint.centerPosition();
       layoutHint.rotation = hint.rotation().map(r -> r.z).orElse(0);
       layoutHint.surfaceId = hint.surfaceId();
       layoutHint.weightFactor = hint.weight();
+      part.layoutHint = layoutHint;
     }
     final var orientation = new LayoutPlanningRequest.Part.Orientation();
     orientation.allowedDown = new java.util.HashSet<>(partModel.getAllowedSidesDown());
     orientation.preferredDown = partModel.getPreferredDown();
-    part.layoutHint = layoutHint;
     part.orientation = orientation;
     return part;
   }
@@ -115,6 +364,7 @@ public class JsonIO {
     final var kit = fromModel(req.kit());
     final var wagon = fromModel(req.wagonHint().get().wagon());
     final var request = new LayoutPlanningRequest();
+    request.kit = kit;
     final var wagonHint = new LayoutPlanningRequest.WagonHint();
     wagonHint.wagon = wagon;
     wagonHint.weightFactor = req.wagonHint().get().weightFactor();
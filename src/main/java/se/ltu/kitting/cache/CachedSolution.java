@@ -0,0 +1,95 @@
+package se.ltu.kitting.cache;
+
+import java.util.List;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import se.ltu.kitting.model.Dimensions;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.Part;
+import se.ltu.kitting.model.Rotation;
+import se.ltu.kitting.model.Side;
+
+/**
+ * The placement (side, rotation and position) of each part of a solved
+ * layout, in {@link KitFingerprint#canonicalOrder(Layout) canonical order},
+ * and its score. Immutable, and independent of the IDs of the parts, so it
+ * can be applied to any layout with the same fingerprint.
+ */
+public final class CachedSolution {
+
+  private final Side[] sides;
+  private final Rotation[] rotations;
+  private final Dimensions[] positions;
+  private final HardSoftLongScore score;
+
+  public CachedSolution(final Side[] sides, final Rotation[] rotations,
+      final Dimensions[] positions, final HardSoftLongScore score) {
+    if (sides.length != rotations.length || sides.length != positions.length) {
+      throw new IllegalArgumentException("Mismatched number of sides, rotations and positions");
+    }
+    this.sides = sides.clone();
+    this.rotations = rotations.clone();
+    this.positions = positions.clone();
+    this.score = score;
+  }
+
+  /** Captures the placements of this (fully initialized) solution. */
+  public static CachedSolution of(final Layout solved) {
+    final List<Part> parts = KitFingerprint.canonicalOrder(solved);
+    final int n = parts.size();
+    final Side[] sides = new Side[n];
+    final Rotation[] rotations = new Rotation[n];
+    final Dimensions[] positions = new Dimensions[n];
+    for (int i = 0; i < n; i++) {
+      final Part part = parts.get(i);
+      if (!part.fullyInitialized()) {
+        throw new IllegalArgumentException("Part is not fully initialized: " + part);
+      }
+      sides[i] = part.getSideDown();
+      rotations[i] = part.getRotation();
+      positions[i] = part.getPosition();
+    }
+    return new CachedSolution(sides, rotations, positions, solved.getScore());
+  }
+
+  /**
+   * A copy of the layout (which must have the same fingerprint as the one
+   * this solution came from) with the parts placed according to this
+   * solution, and with this score.
+   */
+  public Layout applyTo(final Layout layout) {
+    final Layout result = Layout.copyOf(layout);
+    final List<Part> parts = KitFingerprint.canonicalOrder(result);
+    if (parts.size() != size()) {
+      throw new IllegalArgumentException("Expected " + size() + " parts, got " + parts.size());
+    }
+    for (int i = 0; i < sides.length; i++) {
+      final Part part = parts.get(i);
+      part.setSideDown(sides[i]);
+      part.setRotation(rotations[i]);
+      part.setPosition(positions[i]);
+    }
+    result.setScore(score);
+    return result;
+  }
+
+  public int size() {
+    return sides.length;
+  }
+
+  public Side side(final int i) {
+    return sides[i];
+  }
+
+  public Rotation rotation(final int i) {
+    return rotations[i];
+  }
+
+  public Dimensions position(final int i) {
+    return positions[i];
+  }
+
+  public HardSoftLongScore score() {
+    return score;
+  }
+
+}
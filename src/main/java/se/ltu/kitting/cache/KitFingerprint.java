@@ -0,0 +1,154 @@
+package se.ltu.kitting.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import se.ltu.kitting.model.Dimensions;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.LayoutHint;
+import se.ltu.kitting.model.Part;
+import se.ltu.kitting.model.Side;
+import se.ltu.kitting.model.Surface;
+import se.ltu.kitting.model.Wagon;
+
+/**
+ * Canonical description of everything about a layout that affects its
+ * solution: the surfaces of the wagon (sorted by ID), and the parts (sorted
+ * by part number) with their size, allowed and preferred sides, margin and
+ * hint. Part IDs, positions and the kit itself are not included.
+ * <p>
+ * Two layouts with equal fingerprints have the same solutions (up to which
+ * of several identical parts goes where). The parts of a layout in
+ * {@link #canonicalOrder(Layout)} correspond one-to-one to the parts of any
+ * other layout with the same fingerprint.
+ * <p>
+ * Fingerprints compare the full canonical form, so there are no false
+ * matches. The {@link #digest()} is a compact (SHA-256) hash of it.
+ */
+public final class KitFingerprint {
+
+  private final String canonical;
+  private final int hash;
+
+  private KitFingerprint(final String canonical) {
+    this.canonical = canonical;
+    this.hash = canonical.hashCode();
+  }
+
+  /** The fingerprint of this layout. */
+  public static KitFingerprint of(final Layout layout) {
+    final StringBuilder sb = new StringBuilder(surfaces(layout.getWagon()));
+    sb.append("parts:");
+    // Length-prefixed, since part numbers are arbitrary strings.
+    for (final String part : sortedDescriptions(layout)) {
+      sb.append(part.length()).append(':').append(part);
+    }
+    return new KitFingerprint(sb.toString());
+  }
+
+  /**
+   * The canonical form of the surfaces of the wagon (the first part of the
+   * fingerprint). Wagons with equal surfaces have the same positions.
+   */
+  public static String surfaces(final Wagon wagon) {
+    final StringBuilder sb = new StringBuilder();
+    final List<Surface> surfaces = new ArrayList<>(wagon.surfaces());
+    surfaces.sort(Comparator.comparingInt(s -> s.id));
+    sb.append("surfaces:");
+    for (final Surface surface : surfaces) {
+      sb.append(surface.id).append(',');
+      append(sb, surface.origin).append(',');
+      append(sb, surface.dimensions).append(';');
+    }
+    return sb.toString();
+  }
+
+  /** Recreates a fingerprint from its {@link #canonicalForm()}. */
+  public static KitFingerprint fromCanonicalForm(final String canonical) {
+    return new KitFingerprint(canonical);
+  }
+
+  /**
+   * The parts of the layout in canonical order: by part number, and then by
+   * the rest of the description. Identical parts are interchangeable, so
+   * their relative order does not matter.
+   */
+  public static List<Part> canonicalOrder(final Layout layout) {
+    final List<Part> parts = new ArrayList<>(layout.getParts());
+    parts.sort(Comparator.comparing(KitFingerprint::describe));
+    return parts;
+  }
+
+  private static List<String> sortedDescriptions(final Layout layout) {
+    final List<String> parts = new ArrayList<>();
+    for (final Part part : layout.getParts()) {
+      parts.add(describe(part));
+    }
+    parts.sort(Comparator.naturalOrder());
+    return parts;
+  }
+
+  // Starts with the part number, so sorting the descriptions sorts the parts
+  // by part number. The rest never contains '#', so it is unambiguous.
+  private static String describe(final Part part) {
+    final StringBuilder sb = new StringBuilder();
+    sb.append(part.getPartNumber()).append('#');
+    append(sb, part.getSize()).append('|');
+    final List<Side> allowed = part.getAllowedDown();
+    if (allowed == null) {
+      sb.append('*');
+    } else {
+      allowed.stream().distinct().sorted().forEach(side -> sb.append(side.ordinal()));
+    }
+    sb.append('|').append(part.getPreferredDown() == null ? "-" : part.getPreferredDown().ordinal());
+    sb.append('|').append(part.getMargin()).append('|');
+    final LayoutHint hint = part.getHint();
+    if (hint == null) {
+      sb.append('-');
+    } else {
+      append(sb, hint.centerPosition()).append(',');
+      sb.append(hint.surfaceId()).append(',');
+      sb.append(hint.side().map(s -> String.valueOf(s.ordinal())).orElse("-")).append(',');
+      sb.append(hint.rotation().map(r -> String.valueOf(r.z)).orElse("-")).append(',');
+      sb.append(hint.weight());
+    }
+    return sb.toString();
+  }
+
+  private static StringBuilder append(final StringBuilder sb, final Dimensions d) {
+    return sb.append(d.x).append(',').append(d.y).append(',').append(d.z);
+  }
+
+  /** The full canonical form. */
+  public String canonicalForm() {
+    return canonical;
+  }
+
+  /** SHA-256 hash of the canonical form. */
+  public byte[] digest() {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);  // Every JVM has SHA-256.
+    }
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    return other instanceof KitFingerprint && canonical.equals(((KitFingerprint) other).canonical);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return "KitFingerprint(" + canonical + ")";
+  }
+
+}
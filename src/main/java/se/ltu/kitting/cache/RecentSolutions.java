@@ -0,0 +1,248 @@
+package se.ltu.kitting.cache;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import se.ltu.kitting.model.Dimensions;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.LayoutHint;
+import se.ltu.kitting.model.Part;
+import se.ltu.kitting.util.Util;
+
+/**
+ * A bounded, thread-safe collection of recent feasible solutions, used to
+ * warm start the solver for kits that are similar to earlier ones.
+ * <p>
+ * The most similar solution is the one (for the same wagon surfaces) whose
+ * part numbers have the largest multiset overlap with the part numbers of
+ * the new kit. If the overlap is a large enough fraction of the new kit,
+ * each matching part gets the placement of a part with the same part number
+ * and size in that solution as its {@link Part#getWarmStart() warm start}.
+ * {@link se.ltu.kitting.algo.HintInit} then initializes the matching parts
+ * from their warm starts, and only the remaining parts go through
+ * construction.
+ * <p>
+ * When full, the least recently used solution is evicted.
+ */
+public class RecentSolutions {
+
+  public static final int defaultCapacity = 256;
+  public static final double defaultMinOverlap = 0.5;
+
+  private final int capacity;
+  /** Minimum fraction of the parts of a new kit that must match. */
+  private final double minOverlap;
+  private final Map<KitFingerprint,Solution> solutions;
+  private final AtomicLong lookups = new AtomicLong();
+  private final AtomicLong warmStarts = new AtomicLong();
+  private final AtomicLong warmStartedParts = new AtomicLong();
+
+  public RecentSolutions() {
+    this(defaultCapacity, defaultMinOverlap);
+  }
+
+  public RecentSolutions(final int capacity, final double minOverlap) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Illegal capacity: " + capacity);
+    }
+    if (minOverlap < 0 || minOverlap > 1) {
+      throw new IllegalArgumentException("Illegal min overlap: " + minOverlap);
+    }
+    this.capacity = capacity;
+    this.minOverlap = minOverlap;
+    this.solutions = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<KitFingerprint,Solution> eldest) {
+        return size() > RecentSolutions.this.capacity;
+      }
+    };
+  }
+
+  /**
+   * Remembers the solution if it is feasible and fully initialized.
+   * @return whether the solution was added
+   */
+  public boolean add(final Layout solved) {
+    if (solved == null || !solved.isFeasibleSolution()) {
+      return false;
+    }
+    if (!solved.getParts().stream().allMatch(Part::fullyInitialized)) {
+      return false;
+    }
+    final KitFingerprint fingerprint = KitFingerprint.of(solved);
+    final Solution solution = new Solution(solved);
+    synchronized (solutions) {
+      solutions.put(fingerprint, solution);
+    }
+    return true;
+  }
+
+  /**
+   * Sets the warm start of the parts of the layout that match the most
+   * similar recent solution (if it is similar enough).
+   * Parts with hints are left alone, since they are initialized from their
+   * hints anyway.
+   * @return the number of parts that got a warm start
+   */
+  public int warmStart(final Layout layout) {
+    lookups.incrementAndGet();
+    final Optional<Solution> similar = mostSimilar(layout);
+    if (similar.isEmpty()) {
+      return 0;
+    }
+    final Map<String,Deque<Placement>> available = similar.get().copyPlacements();
+    int count = 0;
+    for (final Part part : layout.getParts()) {
+      if (part.hasHint()) {
+        continue;
+      }
+      final Placement placement = take(available, part);
+      if (placement != null) {
+        part.setWarmStart(placement.placement);
+        count++;
+      }
+    }
+    if (count > 0) {
+      warmStarts.incrementAndGet();
+      warmStartedParts.addAndGet(count);
+    }
+    return count;
+  }
+
+  // Removes and returns a placement for a part with the same part number
+  // and size, on an allowed side.
+  private static Placement take(final Map<String,Deque<Placement>> available, final Part part) {
+    final Deque<Placement> placements = available.get(part.getPartNumber());
+    if (placements == null) {
+      return null;
+    }
+    for (final var it = placements.iterator(); it.hasNext();) {
+      final Placement placement = it.next();
+      if (placement.matches(part)) {
+        it.remove();
+        return placement;
+      }
+    }
+    return null;
+  }
+
+  /** The solution (for the same surfaces) with the largest overlap. */
+  Optional<Solution> mostSimilar(final Layout layout) {
+    final String surfaces = KitFingerprint.surfaces(layout.getWagon());
+    final Map<String,Integer> counts = partNumberCounts(layout.getParts());
+    final int required = (int) Math.ceil(minOverlap * layout.getParts().size());
+    final List<Solution> candidates;
+    synchronized (solutions) {
+      candidates = new ArrayList<>(solutions.values());
+    }
+    Solution best = null;
+    int bestOverlap = 0;
+    for (final Solution solution : candidates) {
+      if (!solution.surfaces.equals(surfaces)) {
+        continue;
+      }
+      final int overlap = solution.overlap(counts);
+      if (overlap > bestOverlap) {
+        best = solution;
+        bestOverlap = overlap;
+      }
+    }
+    return bestOverlap > 0 && bestOverlap >= required ? Optional.of(best) : Optional.empty();
+  }
+
+  private static Map<String,Integer> partNumberCounts(final List<Part> parts) {
+    final Map<String,Integer> counts = new HashMap<>();
+    for (final Part part : parts) {
+      counts.merge(part.getPartNumber(), 1, Integer::sum);
+    }
+    return counts;
+  }
+
+  public int size() {
+    synchronized (solutions) {
+      return solutions.size();
+    }
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  public void clear() {
+    synchronized (solutions) {
+      solutions.clear();
+      lookups.set(0);
+      warmStarts.set(0);
+      warmStartedParts.set(0);
+    }
+  }
+
+  /** Lookups, warm starts, warm started parts, size and capacity. */
+  public Map<String,Number> stats() {
+    return Map.of(
+      "lookups", lookups.get(),
+      "warmStarts", warmStarts.get(),
+      "warmStartedParts", warmStartedParts.get(),
+      "size", size(),
+      "capacity", capacity
+    );
+  }
+
+  @Override
+  public String toString() {
+    return "RecentSolutions" + stats();
+  }
+
+  /** The placements of a solution, grouped by part number. Immutable. */
+  static final class Solution {
+    final String surfaces;
+    final Map<String,List<Placement>> placements = new HashMap<>();
+    final Map<String,Integer> counts;
+
+    Solution(final Layout solved) {
+      this.surfaces = KitFingerprint.surfaces(solved.getWagon());
+      for (final Part part : solved.getParts()) {
+        placements.computeIfAbsent(part.getPartNumber(), k -> new ArrayList<>()).add(new Placement(part));
+      }
+      this.counts = partNumberCounts(solved.getParts());
+    }
+
+    /** Size of the intersection of the part number multisets. */
+    int overlap(final Map<String,Integer> otherCounts) {
+      int overlap = 0;
+      for (final var entry : otherCounts.entrySet()) {
+        overlap += Math.min(entry.getValue(), counts.getOrDefault(entry.getKey(), 0));
+      }
+      return overlap;
+    }
+
+    Map<String,Deque<Placement>> copyPlacements() {
+      final Map<String,Deque<Placement>> copy = new HashMap<>();
+      placements.forEach((number, list) -> copy.put(number, new ArrayDeque<>(list)));
+      return copy;
+    }
+  }
+
+  private static final class Placement {
+    final Dimensions size;
+    final LayoutHint placement;
+
+    Placement(final Part part) {
+      this.size = part.getSize();
+      this.placement = Util.hintFromCurrentPlacement(part, LayoutHint.defaultWeight);
+    }
+
+    boolean matches(final Part part) {
+      final var allowed = part.getAllowedDown();
+      final var side = placement.side().get();
+      return size.equals(part.getSize()) && (allowed == null || allowed.contains(side));
+    }
+  }
+
+}
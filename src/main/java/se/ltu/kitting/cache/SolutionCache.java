@@ -0,0 +1,134 @@
+package se.ltu.kitting.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.Part;
+
+/**
+ * A bounded, thread-safe cache of feasible solutions, keyed by
+ * {@link KitFingerprint}. When full, the least recently used solution is
+ * evicted.
+ * <p>
+ * A cached solution can be applied to any layout with the same fingerprint,
+ * so identical kits (for example for the same chassis variant) are only
+ * solved once, even if their parts have different IDs.
+ */
+public class SolutionCache {
+
+  public static final int defaultCapacity = 1024;
+
+  private final int capacity;
+  private final Map<KitFingerprint,CachedSolution> solutions;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public SolutionCache() {
+    this(defaultCapacity);
+  }
+
+  public SolutionCache(final int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Illegal capacity: " + capacity);
+    }
+    this.capacity = capacity;
+    this.solutions = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<KitFingerprint,CachedSolution> eldest) {
+        return size() > SolutionCache.this.capacity;
+      }
+    };
+  }
+
+  /**
+   * The cached solution, if any, applied to (a copy of) this layout.
+   * The layout must have the given fingerprint.
+   */
+  public Optional<Layout> get(final KitFingerprint fingerprint, final Layout layout) {
+    return get(fingerprint).map(solution -> solution.applyTo(layout));
+  }
+
+  /** The cached solution, if any. Counts as a hit or a miss. */
+  public Optional<CachedSolution> get(final KitFingerprint fingerprint) {
+    final CachedSolution cached;
+    synchronized (solutions) {
+      cached = solutions.get(fingerprint);
+    }
+    (cached != null ? hits : misses).incrementAndGet();
+    return Optional.ofNullable(cached);
+  }
+
+  /**
+   * Caches the solution if it is feasible and fully initialized.
+   * @return whether the solution was cached
+   */
+  public boolean put(final KitFingerprint fingerprint, final Layout solved) {
+    if (solved == null || !solved.isFeasibleSolution()) {
+      return false;
+    }
+    if (!solved.getParts().stream().allMatch(Part::fullyInitialized)) {
+      return false;
+    }
+    put(fingerprint, CachedSolution.of(solved));
+    return true;
+  }
+
+  public void put(final KitFingerprint fingerprint, final CachedSolution solution) {
+    synchronized (solutions) {
+      solutions.put(fingerprint, solution);
+    }
+  }
+
+  public long hits() {
+    return hits.get();
+  }
+
+  public long misses() {
+    return misses.get();
+  }
+
+  /** Fraction of lookups that were hits, or 0 if there have been none. */
+  public double hitRate() {
+    final long hits = hits();
+    final long total = hits + misses();
+    return total == 0 ? 0.0 : (double) hits / total;
+  }
+
+  public int size() {
+    synchronized (solutions) {
+      return solutions.size();
+    }
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  /** Removes all solutions and resets the counters. */
+  public void clear() {
+    synchronized (solutions) {
+      solutions.clear();
+      hits.set(0);
+      misses.set(0);
+    }
+  }
+
+  /** Hits, misses, size and capacity (for monitoring). */
+  public Map<String,Number> stats() {
+    return Map.of(
+      "hits", hits(),
+      "misses", misses(),
+      "hitRate", hitRate(),
+      "size", size(),
+      "capacity", capacity
+    );
+  }
+
+  @Override
+  public String toString() {
+    return "SolutionCache" + stats();
+  }
+
+}
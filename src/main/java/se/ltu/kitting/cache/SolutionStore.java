@@ -0,0 +1,469 @@
+package se.ltu.kitting.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import se.ltu.kitting.model.Dimensions;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.Part;
+import se.ltu.kitting.model.Rotation;
+import se.ltu.kitting.model.Side;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A persistent store of feasible solutions, keyed by the
+ * {@link KitFingerprint#digest() digest} of their fingerprint.
+ * Needs nothing but a directory.
+ * <p>
+ * Solutions are appended to a data file ({@value #dataFileName}) as compact
+ * binary records. The index file ({@value #indexFileName}) is an
+ * open-addressing hash table from digest to record offset, which is memory
+ * mapped, so opening the store does not load the solutions (or the index)
+ * onto the heap, and a lookup reads a single record.
+ * <p>
+ * The data file is the source of truth. If the index is missing, broken, or
+ * does not cover the whole data file (for example after a crash), it is
+ * rebuilt or brought up to date from the data file when the store is opened.
+ * A partially written record at the end of the data file is discarded.
+ * <p>
+ * The data file is exclusively locked while the store is open, so only one
+ * store (in any process) can use a directory at a time.
+ * <p>
+ * Data record: length (int), CRC32 of the rest (int), digest (32 bytes),
+ * number of parts (int), hard and soft score (long, long), and then for each
+ * part, in {@link KitFingerprint#canonicalOrder(Layout) canonical order}:
+ * side (byte), rotation (byte) and position x, y, z (int, int, int).
+ * <p>
+ * Thread-safe. I/O errors are thrown as {@link UncheckedIOException}s.
+ */
+public final class SolutionStore implements Closeable {
+
+  public static final String dataFileName = "solutions.dat";
+  public static final String indexFileName = "solutions.idx";
+
+  private static final int dataMagic = 0x4b534f4c;   // "KSOL"
+  private static final int indexMagic = 0x4b494458;  // "KIDX"
+  private static final int version = 1;
+  private static final int dataHeaderSize = 8;
+  // magic, version, slots, count, indexed data length
+  private static final int indexHeaderSize = 24;
+  private static final int digestSize = 32;
+  // digest, record offset + 1 (0 means empty)
+  private static final int slotSize = digestSize + 8;
+  private static final int partSize = 2 + 3 * 4;
+  private static final int recordHeaderSize = 8;
+  private static final int minSlots = 1024;
+
+  private final Path directory;
+  private final FileChannel data;
+  private MappedByteBuffer index;
+  private int slots;
+  private int count;
+  private long dataLength;
+  private long hits;
+  private long misses;
+
+  private SolutionStore(final Path directory) throws IOException {
+    this.directory = directory;
+    Files.createDirectories(directory);
+    this.data = FileChannel.open(directory.resolve(dataFileName), CREATE, READ, WRITE);
+    try {
+      lock();
+      if (data.size() == 0) {
+        final ByteBuffer header = ByteBuffer.allocate(dataHeaderSize).putInt(dataMagic).putInt(version);
+        writeFully(header.flip(), 0);
+      } else {
+        final ByteBuffer header = readFully(0, dataHeaderSize);
+        if (header.getInt() != dataMagic || header.getInt() != version) {
+          throw new IOException("Not a solution store: " + directory.resolve(dataFileName));
+        }
+      }
+      openIndex();
+    } catch (IOException | RuntimeException e) {
+      data.close();  // Also releases the lock.
+      throw e;
+    }
+  }
+
+  // Two stores writing the same files would corrupt them.
+  private void lock() throws IOException {
+    FileLock lock;
+    try {
+      lock = data.tryLock();
+    } catch (OverlappingFileLockException e) {
+      lock = null;  // Held by this JVM.
+    }
+    if (lock == null) {
+      throw new IllegalStateException("Solution store is already open (in this or another process): "
+          + directory);
+    }
+  }
+
+  /**
+   * Opens the store in this directory, creating it if it does not exist.
+   * @throws IllegalStateException if the store is already open
+   */
+  public static SolutionStore open(final Path directory) {
+    try {
+      return new SolutionStore(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // Maps the index, and indexes any records it does not cover.
+  private void openIndex() throws IOException {
+    final Path path = directory.resolve(indexFileName);
+    long indexed = -1;
+    if (Files.exists(path)) {
+      index = map(path, Files.size(path));
+      if (index.capacity() >= indexHeaderSize
+          && index.getInt(0) == indexMagic && index.getInt(4) == version) {
+        slots = index.getInt(8);
+        count = index.getInt(12);
+        indexed = index.getLong(16);
+      }
+      if (indexed < dataHeaderSize || indexed > data.size()
+          || index.capacity() != indexHeaderSize + (long) slots * slotSize) {
+        indexed = -1;
+      }
+    }
+    if (indexed < 0) {
+      index = null;
+      rebuildIndex(minSlots);
+      indexed = dataHeaderSize;
+    }
+    dataLength = indexed;
+    scan();
+  }
+
+  // Indexes the records from dataLength to the end of the data file.
+  private void scan() throws IOException {
+    final long size = data.size();
+    long offset = dataLength;
+    while (offset + recordHeaderSize <= size) {
+      final ByteBuffer header = readFully(offset, recordHeaderSize);
+      final int length = header.getInt();
+      final int crc = header.getInt();
+      if (length < digestSize || offset + recordHeaderSize + length > size) {
+        break;
+      }
+      final ByteBuffer body = readFully(offset + recordHeaderSize, length);
+      if (crc32(body) != crc) {
+        break;
+      }
+      final byte[] digest = new byte[digestSize];
+      body.get(digest);
+      insert(digest, offset);
+      offset += recordHeaderSize + length;
+    }
+    if (offset < size) {
+      data.truncate(offset);  // Partially written record.
+    }
+    setDataLength(offset);
+  }
+
+  /** The stored solution with this fingerprint, if any. */
+  public Optional<CachedSolution> get(final KitFingerprint fingerprint) {
+    final byte[] digest = fingerprint.digest();
+    try {
+      synchronized (this) {
+        final long offset = find(digest);
+        if (offset < 0) {
+          misses++;
+          return Optional.empty();
+        }
+        hits++;
+        return Optional.of(read(offset));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** The stored solution, if any, applied to (a copy of) this layout. */
+  public Optional<Layout> get(final KitFingerprint fingerprint, final Layout layout) {
+    return get(fingerprint).map(solution -> solution.applyTo(layout));
+  }
+
+  /**
+   * Stores the solution if it is feasible and fully initialized.
+   * @return whether the solution was stored
+   */
+  public boolean put(final KitFingerprint fingerprint, final Layout solved) {
+    if (solved == null || !solved.isFeasibleSolution()) {
+      return false;
+    }
+    if (!solved.getParts().stream().allMatch(Part::fullyInitialized)) {
+      return false;
+    }
+    return put(fingerprint, CachedSolution.of(solved));
+  }
+
+  /**
+   * Stores the solution, unless an equally good solution with this
+   * fingerprint is already stored.
+   * @return whether the solution was stored
+   */
+  public boolean put(final KitFingerprint fingerprint, final CachedSolution solution) {
+    final byte[] digest = fingerprint.digest();
+    final ByteBuffer record = encode(digest, solution);
+    try {
+      synchronized (this) {
+        final long existing = find(digest);
+        if (existing >= 0 && read(existing).score().compareTo(solution.score()) >= 0) {
+          return false;
+        }
+        final long offset = dataLength;
+        writeFully(record, offset);
+        insert(digest, offset);
+        setDataLength(offset + record.capacity());
+        return true;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static ByteBuffer encode(final byte[] digest, final CachedSolution solution) {
+    final int n = solution.size();
+    final int length = digestSize + 4 + 16 + n * partSize;
+    final ByteBuffer record = ByteBuffer.allocate(recordHeaderSize + length);
+    record.position(recordHeaderSize);
+    record.put(digest).putInt(n);
+    record.putLong(solution.score().getHardScore()).putLong(solution.score().getSoftScore());
+    for (int i = 0; i < n; i++) {
+      final Dimensions position = solution.position(i);
+      record.put((byte) solution.side(i).ordinal());
+      record.put(encode(solution.rotation(i)));
+      record.putInt(position.x).putInt(position.y).putInt(position.z);
+    }
+    final int crc = crc32(record.position(recordHeaderSize));
+    return record.putInt(0, length).putInt(4, crc).rewind();
+  }
+
+  private CachedSolution read(final long offset) throws IOException {
+    final int length = readFully(offset, 4).getInt();
+    final ByteBuffer body = readFully(offset + recordHeaderSize, length);
+    body.position(digestSize);
+    final int n = body.getInt();
+    final HardSoftLongScore score = HardSoftLongScore.of(body.getLong(), body.getLong());
+    final Side[] sides = new Side[n];
+    final Rotation[] rotations = new Rotation[n];
+    final Dimensions[] positions = new Dimensions[n];
+    final Side[] allSides = Side.values();
+    for (int i = 0; i < n; i++) {
+      sides[i] = allSides[body.get()];
+      rotations[i] = decode(body.get());
+      positions[i] = Dimensions.of(body.getInt(), body.getInt(), body.getInt());
+    }
+    return new CachedSolution(sides, rotations, positions, score);
+  }
+
+  // One bit per axis (rotations are multiples of 90 degrees, at most 90).
+  private static byte encode(final Rotation rotation) {
+    return (byte) ((rotation.x / 90) << 2 | (rotation.y / 90) << 1 | (rotation.z / 90));
+  }
+
+  @SuppressWarnings("deprecation")
+  private static Rotation decode(final byte rotation) {
+    return Rotation.of(90 * (rotation >> 2 & 1), 90 * (rotation >> 1 & 1), 90 * (rotation & 1));
+  }
+
+  // Offset of the record with this digest, or -1.
+  private long find(final byte[] digest) {
+    int slot = home(digest, slots);
+    while (true) {
+      final int pos = indexHeaderSize + slot * slotSize;
+      final long offset = index.getLong(pos + digestSize) - 1;
+      if (offset < 0) {
+        return -1;
+      }
+      if (digestAt(index, pos, digest)) {
+        return offset;
+      }
+      slot = (slot + 1) & (slots - 1);
+    }
+  }
+
+  // Adds or replaces the entry for this digest, growing the index if needed.
+  private void insert(final byte[] digest, final long offset) throws IOException {
+    if (find(digest) < 0 && 2 * (count + 1) > slots) {
+      rebuildIndex(2 * slots);
+    }
+    if (insert(index, slots, digest, offset)) {
+      count++;
+      index.putInt(12, count);
+    }
+  }
+
+  // Returns whether a new entry was added (rather than replaced).
+  private static boolean insert(final MappedByteBuffer index, final int slots,
+      final byte[] digest, final long offset) {
+    int slot = home(digest, slots);
+    while (true) {
+      final int pos = indexHeaderSize + slot * slotSize;
+      final boolean empty = index.getLong(pos + digestSize) == 0;
+      if (empty || digestAt(index, pos, digest)) {
+        index.duplicate().position(pos).put(digest);
+        index.putLong(pos + digestSize, offset + 1);
+        return empty;
+      }
+      slot = (slot + 1) & (slots - 1);
+    }
+  }
+
+  /**
+   * Writes a new index with this many slots (a power of 2), containing the
+   * entries of the current index (if any), and replaces the current index.
+   */
+  private void rebuildIndex(final int newSlots) throws IOException {
+    final Path path = directory.resolve(indexFileName);
+    final Path tmp = directory.resolve(indexFileName + ".tmp");
+    Files.deleteIfExists(tmp);
+    final MappedByteBuffer newIndex = map(tmp, indexHeaderSize + (long) newSlots * slotSize);
+    newIndex.putInt(0, indexMagic).putInt(4, version).putInt(8, newSlots);
+    int newCount = 0;
+    if (index != null && slots > 0) {
+      final byte[] digest = new byte[digestSize];
+      for (int slot = 0; slot < slots; slot++) {
+        final int pos = indexHeaderSize + slot * slotSize;
+        final long offset = index.getLong(pos + digestSize) - 1;
+        if (offset >= 0) {
+          index.duplicate().position(pos).get(digest);
+          insert(newIndex, newSlots, digest, offset);
+          newCount++;
+        }
+      }
+    }
+    newIndex.putInt(12, newCount).putLong(16, index == null ? dataHeaderSize : dataLength);
+    newIndex.force();
+    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    index = newIndex;
+    slots = newSlots;
+    count = newCount;
+  }
+
+  private void setDataLength(final long length) {
+    dataLength = length;
+    index.putLong(16, length);
+  }
+
+  private static int home(final byte[] digest, final int slots) {
+    // The digest is uniformly distributed, so any bits will do.
+    final int hash = (digest[0] & 0xff) | (digest[1] & 0xff) << 8
+      | (digest[2] & 0xff) << 16 | (digest[3] & 0xff) << 24;
+    return hash & (slots - 1);
+  }
+
+  private static boolean digestAt(final ByteBuffer index, final int pos, final byte[] digest) {
+    for (int i = 0; i < digestSize; i++) {
+      if (index.get(pos + i) != digest[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static MappedByteBuffer map(final Path path, final long size) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, CREATE, READ, WRITE)) {
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+  }
+
+  private static int crc32(final ByteBuffer buffer) {
+    final CRC32 crc = new CRC32();
+    crc.update(buffer.duplicate());
+    return (int) crc.getValue();
+  }
+
+  private ByteBuffer readFully(final long position, final int length) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (data.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of " + dataFileName + " at " + position);
+      }
+    }
+    return buffer.flip();
+  }
+
+  private void writeFully(final ByteBuffer buffer, final long position) throws IOException {
+    long pos = position;
+    while (buffer.hasRemaining()) {
+      pos += data.write(buffer, pos);
+    }
+  }
+
+  /** Number of stored solutions. */
+  public synchronized int size() {
+    return count;
+  }
+
+  public synchronized long hits() {
+    return hits;
+  }
+
+  public synchronized long misses() {
+    return misses;
+  }
+
+  /** Size of the data file in bytes. */
+  public synchronized long dataBytes() {
+    return dataLength;
+  }
+
+  /** Hits, misses, size, and size of the files in bytes (for monitoring). */
+  public synchronized Map<String,Number> stats() {
+    return Map.of(
+      "hits", hits,
+      "misses", misses,
+      "size", count,
+      "dataBytes", dataLength,
+      "indexBytes", index.capacity()
+    );
+  }
+
+  /** Writes everything to disk. */
+  public synchronized void flush() {
+    try {
+      data.force(false);
+      index.force();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (!data.isOpen()) {
+      return;
+    }
+    flush();
+    try {
+      data.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "SolutionStore(" + directory + ")" + stats();
+  }
+
+}
@@ -0,0 +1,8 @@
+/**
+ * This package contains components for reusing solutions across requests.
+ * Requests are identified by a {@link se.ltu.kitting.cache.KitFingerprint},
+ * which only depends on the parts of the request that affect the solution,
+ * so that identical kits share solutions even if their parts have different
+ * IDs.
+ */
+package se.ltu.kitting.cache;
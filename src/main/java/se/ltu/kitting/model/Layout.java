@@ -22,7 +22,7 @@ import static java.util.stream.Collectors.toList;
 @PlanningSolution
 public class Layout {
 
-  private int positionStepSize = 1;
+  private StepSizes positionStepSizes = StepSizes.of(1);
   /** Holds the surfaces on which the parts will be placed. */
   private Wagon wagon;
   /** The parts that will be placed on the surface(s) - planning entities. */
@@ -40,7 +40,7 @@ public class Layout {
     this.wagon = layout.wagon;
     this.parts = layout.parts.stream().map(Part::copyOf).collect(toList());
     this.score = layout.score;
-    this.positionStepSize = layout.positionStepSize;
+    this.positionStepSizes = layout.positionStepSizes;
   }
 
   /** @deprecated because there will be multiple surfaces in the future */
@@ -52,6 +52,18 @@ public class Layout {
   public Layout(Wagon wagon, List<Part> parts) {
     this.wagon = wagon;
     this.parts = parts;
+    updateParts();
+  }
+
+  // The parts need the wagon and step sizes for their own position ranges.
+  private void updateParts() {
+    if (parts == null) {
+      return;
+    }
+    for (final Part part : parts) {
+      part.setWagon(wagon);
+      part.setPositionStepSizes(positionStepSizes);
+    }
   }
 
   /**
@@ -71,20 +83,22 @@ public class Layout {
 
   public void setParts(List<Part> parts) {
     this.parts = parts;
+    updateParts();
   }
 
   // TODO: Use ValueRange instead of collection.
   // Does not necessarily have to be defined on this class.
   //@ValueRangeProvider(id = "positionsAndRotationPairs")
   public Collection<Pair<Dimensions,Rotation>> getPositionsAndRotations() {
-    return getPositions().stream()
+    return getPositions().asList().stream()
       .flatMap(p -> getRotations().stream().map(r -> Pair.of(p, r)))
       .collect(toList());
   }
 
+  // Computes positions on demand, so even a step size of 1 is cheap.
   @ValueRangeProvider(id = "positions")
-  public Collection<Dimensions> getPositions() {
-    return PositionProvider.positions(wagon, positionStepSize);
+  public PositionRange getPositions() {
+    return PositionProvider.range(wagon, positionStepSizes);
   }
 
   // Does not necessarily have to be defined on this class.
@@ -102,13 +116,24 @@ public class Layout {
     this.score = score;
   }
 
-  @ProblemFactProperty
+  /** The smallest step size of any surface. */
   public int getPositionStepSize() {
-    return positionStepSize;
+    return positionStepSizes.smallest();
   }
 
+  /** Use the same step size on all surfaces. */
   public void setPositionStepSize(int step) {
-    this.positionStepSize = step;
+    setPositionStepSizes(StepSizes.of(step));
+  }
+
+  @ProblemFactProperty
+  public StepSizes getPositionStepSizes() {
+    return positionStepSizes;
+  }
+
+  public void setPositionStepSizes(StepSizes steps) {
+    this.positionStepSizes = steps;
+    updateParts();
   }
 
   @ProblemFactProperty
@@ -118,6 +143,7 @@ public class Layout {
 
   public void setWagon(Wagon wagon) {
     this.wagon = wagon;
+    updateParts();
   }
 
   // --- END of OptaPlanner things ---
@@ -1,6 +1,8 @@
 package se.ltu.kitting.model;
 
 import org.optaplanner.core.api.domain.entity.PlanningEntity;
+import org.optaplanner.core.api.domain.entity.PlanningPin;
+import org.optaplanner.core.api.domain.lookup.PlanningId;
 import org.optaplanner.core.api.domain.variable.PlanningVariable;
 import org.optaplanner.core.api.domain.solution.ProblemFactProperty;
 import org.optaplanner.core.api.domain.valuerange.ValueRangeProvider;
@@ -9,7 +11,6 @@ import java.util.*;
 import se.ltu.kitting.algo.*;
 
 import static java.util.Comparator.comparing;
-import static se.ltu.kitting.model.Rotation.rotation;
 import static java.util.stream.Collectors.toSet;
 
 /**
@@ -44,6 +45,11 @@ public class Part {
   private int margin;
   /** Hint about how the part should be placed. */
   private LayoutHint hint;
+  /**
+   * Placement to start from, such as where this kind of part was placed in
+   * a similar kit. Unlike the hint, this does not affect the score.
+   */
+  private LayoutHint warmStart;
 
   // Planning variables.
   // Should probably remain uninitialized, or OptaPlanner can get confused and
@@ -60,6 +66,27 @@ public class Part {
 
   private Pair<Dimensions,Dimensions> currentRegion;
 
+  // Cached current (rotated) dimensions. They only depend on the size, side
+  // and rotation, so they are recomputed lazily after any of those change.
+  // Keeps the scoring hot path free of allocation.
+
+  private boolean footprintValid = false;
+  private int currentWidth;
+  private int currentDepth;
+  private int currentHeight;
+
+  // Needed for the part-specific position range. Set by the layout.
+
+  /** The wagon the part will be placed in. */
+  private Wagon wagon;
+  /** The current position step sizes of the layout. */
+  private StepSizes positionStepSizes = StepSizes.of(1);
+  /** The last position range, reused while the footprint is unchanged. */
+  private PositionRange positionRange;
+  /** The (width, depth, height, step sizes) the last range was made for. */
+  private int rangeWidth, rangeDepth, rangeHeight;
+  private StepSizes rangeStepSizes;
+
   /** A no-arg constructor is required by OptaPlanner. */
   public Part() { }
 
@@ -75,6 +102,7 @@ public class Part {
     this.preferredDown = part.preferredDown;
     this.allowedDown = new ArrayList<>(part.allowedDown);
     this.hint = part.hint;
+    this.warmStart = part.warmStart;
     this.margin = part.margin;
     // Variables
     this.position = part.position;
@@ -82,6 +110,13 @@ public class Part {
     this.rotation = part.rotation;
     // Other
     this.currentRegion = part.currentRegion;
+    this.wagon = part.wagon;
+    this.positionStepSizes = part.positionStepSizes;
+    this.positionRange = part.positionRange;
+    this.rangeWidth = part.rangeWidth;
+    this.rangeDepth = part.rangeDepth;
+    this.rangeHeight = part.rangeHeight;
+    this.rangeStepSizes = part.rangeStepSizes;
   }
 
   @Deprecated
@@ -132,7 +167,7 @@ public class Part {
     setRotation(posRot._2);
   }
 
-  @PlanningVariable(valueRangeProviderRefs = {"positions"})
+  @PlanningVariable(valueRangeProviderRefs = {"partPositions"})
   public Dimensions getPosition() {
     return position;
   }
@@ -148,6 +183,7 @@ public class Part {
 
   public void setRotation(Rotation rotation) {
     this.rotation = rotation;
+    this.footprintValid = false;
   }
 
   @PlanningVariable(valueRangeProviderRefs = {"sides"})
@@ -157,11 +193,15 @@ public class Part {
 
   public void setSideDown(Side sideDown) {
     this.sideDown = sideDown;
+    this.footprintValid = false;
   }
 
   // These setters and getters are required by OptaPlanner (even though they
   // never change) so it can make clones.
 
+  // The ID is also used by OptaPlanner to tell parts apart (for example, to
+  // only consider unique pairs of parts). So it must be unique within a kit.
+  @PlanningId
   @ProblemFactProperty
   public int getId() {
     return id;
@@ -191,6 +231,7 @@ public class Part {
 
   public void setSize(Dimensions size) {
     this.size = size;
+    this.footprintValid = false;
   }
 
   @ProblemFactProperty
@@ -230,6 +271,15 @@ public class Part {
     this.hint = hint;
   }
 
+  /** Placement to start from (if any). Does not affect the score. */
+  public LayoutHint getWarmStart() {
+    return warmStart;
+  }
+
+  public void setWarmStart(LayoutHint warmStart) {
+    this.warmStart = warmStart;
+  }
+
   public void setPreferredDown(Side side) {
     preferredDown = side;
   }
@@ -239,6 +289,90 @@ public class Part {
     return allowedDown;
   }
 
+  /**
+   * The positions where this part fits inside a surface, given its current
+   * side and rotation. If the side and/or rotation has not been set yet, the
+   * smallest footprint (along each axis) that they allow is used instead.
+   * Depends on the wagon and step size set by the layout.
+   * Falls back to all positions if the part does not fit anywhere, so that
+   * the score can still tell how bad it is.
+   */
+  @ValueRangeProvider(id = "partPositions")
+  public PositionRange getPositionRange() {
+    final int w, d, h;
+    if (sideDown != null && rotation != null) {
+      w = width();
+      d = depth();
+      h = height();
+    } else {
+      final var min = minFootprint();
+      w = min.x;
+      d = min.y;
+      h = min.z;
+    }
+    if (positionRange != null && positionStepSizes.equals(rangeStepSizes)
+        && rangeWidth == w && rangeDepth == d && rangeHeight == h) {
+      return positionRange;
+    }
+    var result = PositionProvider.range(wagon, positionStepSizes, w, d, h);
+    if (result.isEmpty()) {
+      result = PositionProvider.range(wagon, positionStepSizes);
+    }
+    positionRange = result;
+    rangeWidth = w;
+    rangeDepth = d;
+    rangeHeight = h;
+    rangeStepSizes = positionStepSizes;
+    return result;
+  }
+
+  // Smallest extent along each axis over the sides and rotations the part
+  // could still be given.
+  private Dimensions minFootprint() {
+    final Collection<Side> sides = sideDown != null ? List.of(sideDown)
+      : allowedDown != null ? allowedDown : List.of(Side.values());
+    final Collection<Rotation> rotations = rotation != null ? List.of(rotation)
+      : List.of(Rotation.ZERO, Rotation.Z90);
+    int x = Integer.MAX_VALUE;
+    int y = Integer.MAX_VALUE;
+    int z = Integer.MAX_VALUE;
+    for (final Side side : sides) {
+      for (final Rotation rot : rotations) {
+        final Dimensions dim = Rotation.rotation(side, rot).apply(size);
+        x = Math.min(x, dim.x);
+        y = Math.min(y, dim.y);
+        z = Math.min(z, dim.z);
+      }
+    }
+    return Dimensions.of(x, y, z);
+  }
+
+  public Wagon getWagon() {
+    return wagon;
+  }
+
+  public void setWagon(Wagon wagon) {
+    this.wagon = wagon;
+    this.positionRange = null;
+  }
+
+  /** The smallest step size of any surface. */
+  public int getPositionStepSize() {
+    return positionStepSizes.smallest();
+  }
+
+  public void setPositionStepSize(int step) {
+    setPositionStepSizes(StepSizes.of(step));
+  }
+
+  public StepSizes getPositionStepSizes() {
+    return positionStepSizes;
+  }
+
+  public void setPositionStepSizes(StepSizes steps) {
+    this.positionStepSizes = steps;
+  }
+
   // --- END of OptaPlanner facts and variables ---
 
   /** Has a layout hint, which may or may not be mandatory. */
@@ -256,6 +390,29 @@ public class Part {
     return hint != null && hint.isMandatory();
   }
 
+  /**
+   * Whether the solver must leave this part alone. OptaPlanner then skips it
+   * when selecting moves, so that no time is wasted on moves that would
+   * violate the hint.
+   * A part is pinned when it has a mandatory hint that also gives the side
+   * and rotation, and it is placed exactly as hinted (such as by
+   * {@link HintInit}). Until then, it can still be moved like any other part.
+   */
+  @PlanningPin
+  public boolean isPinned() {
+    if (!hasMandatoryHint() || !fullyInitialized()) {
+      return false;
+    }
+    final Optional<Side> side = hint.side();
+    final Optional<Rotation> rot = hint.rotation();
+    if (side.isEmpty() || rot.isEmpty()) {
+      return false;
+    }
+    final Dimensions center = hint.centerPosition();
+    return side.get() == sideDown && rot.get().equals(rotation) && surfaceId() == hint.surfaceId()
+      && centerX() == center.x && centerY() == center.y;
+  }
+
   public boolean fullyInitialized() {
     return position != null && sideDown != null && rotation != null;
   }
@@ -326,22 +483,97 @@ public class Part {
     if (!fullyInitialized()) {
       return null;
     }
-    Dimensions newSize = rotation(side, rot).apply(size);
     // Position uses (x,y,surface), but the region is relative to some surface.
     // So we ignore the Z coordinate of the position.
-    return Pair.of(position.withZ(0), position.withZ(0).plus(newSize).minus(Dimensions.UNIT));
+    final Dimensions start = position.withZ(0);
+    return Pair.of(start, Dimensions.of(right(), front(), start.z + height() - 1));
   }
 
   // TODO: add applyHint() method?
 
   public Dimensions currentDimensions() {
-    return rotation(sideDown, rotation).apply(size);
+    return Dimensions.of(width(), depth(), height());
   }
 
   /** Warning: Subject to rounding errors! */
   public Dimensions currentCenter() {
-    var size = currentDimensions();
-    return Dimensions.of(position.x + size.x/2, position.y + size.y/2, size.z/2);
+    return Dimensions.of(centerX(), centerY(), height()/2);
+  }
+
+  // The methods below give the current region as primitives, so they can be
+  // used in the hot path without allocating. Like currentRegion(), the end
+  // coordinates are inclusive. Should only be called if a position has been
+  // assigned.
+
+  /** Smallest x coordinate of the current region. */
+  public int left() {
+    return position.x;
+  }
+
+  /** Largest x coordinate of the current region. */
+  public int right() {
+    return position.x + width() - 1;
+  }
+
+  /** Smallest y coordinate of the current region. */
+  public int back() {
+    return position.y;
+  }
+
+  /** Largest y coordinate of the current region. */
+  public int front() {
+    return position.y + depth() - 1;
+  }
+
+  /** The ID of the surface the part is placed on (the z of the position). */
+  public int surfaceId() {
+    return position.z;
+  }
+
+  /** The x coordinate of {@link #currentCenter()}. */
+  public int centerX() {
+    return position.x + width()/2;
+  }
+
+  /** The y coordinate of {@link #currentCenter()}. */
+  public int centerY() {
+    return position.y + depth()/2;
+  }
+
+  // Same as rotation(sideDown, rotation).apply(size), but without allocating.
+  private void updateFootprint() {
+    int x = size.x;
+    int y = size.y;
+    int z = size.z;
+    if (sideDown != null) {
+      switch (sideDown) {
+        case left: case right: {
+          final int tmp = x;
+          x = z;
+          z = tmp;
+          break;
+        }
+        case back: case front: {
+          final int tmp = y;
+          y = z;
+          z = tmp;
+          break;
+        }
+        default:
+          break;
+      }
+    }
+    if (rotation == Rotation.Z90) {
+      final int tmp = x;
+      x = y;
+      y = tmp;
+    } else if (rotation != null && rotation != Rotation.ZERO) {
+      throw new IllegalArgumentException("Only 0 or Z90 allowed. Illegal rotation: " + rotation);
+    }
+    currentWidth = x;
+    currentDepth = y;
+    currentHeight = z;
+    footprintValid = true;
   }
 
   // TODO: Move to separate util class.
@@ -355,15 +587,24 @@ public class Part {
   }
 
   public int width() {
-    return currentDimensions().x;
+    if (!footprintValid) {
+      updateFootprint();
+    }
+    return currentWidth;
   }
 
   public int depth() {
-    return currentDimensions().y;
+    if (!footprintValid) {
+      updateFootprint();
+    }
+    return currentDepth;
   }
 
   public int height() {
-    return currentDimensions().z;
+    if (!footprintValid) {
+      updateFootprint();
+    }
+    return currentHeight;
   }
 
   /**
@@ -380,8 +621,7 @@ public class Part {
    * Note that the area changes depending on rotation.
    */
   public int currentArea() {
-    var dim = currentDimensions();
-    return dim.x * dim.y;
+    return width() * depth();
   }
 
   /** Minimum theoretically possible area. Never changes. */
@@ -6,11 +6,11 @@ import java.util.ArrayList;
 // TODO: Check whether OptaPlanner needs to be notified of a resolution
 // change somehow.
 // TODO: Add ability to control seed.
-// TODO: Add a way to specify the desired number of positions.
-// (Instead of setting a step size/resolution, figure out what the step
-// size needs to be to cut the space down to N positions.)
 public class PositionProvider {
 
+  /** Shared by all layouts, solver threads and requests. */
+  private static final PositionRangeCache cache = new PositionRangeCache();
+
   private final Wagon wagon;
   public int stepSize = 1;
   public boolean randomize = false;
@@ -31,6 +31,49 @@ public class PositionProvider {
     return positions(wagon, stepSize, randomize);
   }
 
+  /** The positions as a lazy value range. Ignores {@link #randomize}. */
+  public PositionRange range() {
+    return range(wagon, stepSize);
+  }
+
+  /**
+   * Same positions as {@link #positions(Wagon, int, boolean)} (without
+   * randomization), but computed on demand instead of stored in a list.
+   * Ranges are cached per surface geometry and step size.
+   */
+  public static PositionRange range(Wagon wagon, int stepSize) {
+    return cache.get(wagon, stepSize);
+  }
+
+  /**
+   * Like {@link #range(Wagon, int)}, but with a step size per surface.
+   * @see StepSizes#forPositionCount(Wagon, int)
+   */
+  public static PositionRange range(Wagon wagon, StepSizes stepSizes) {
+    return cache.get(wagon, stepSizes);
+  }
+
+  /**
+   * The positions where a part with this footprint fits inside the surface.
+   * @see PositionRange#forFootprint(Wagon, int, int, int, int)
+   */
+  public static PositionRange range(Wagon wagon, int stepSize, int width, int depth, int height) {
+    return cache.get(wagon, stepSize, width, depth, height);
+  }
+
+  /**
+   * The positions where a part with this footprint fits inside the surface.
+   * @see PositionRange#forFootprint(Wagon, StepSizes, int, int, int)
+   */
+  public static PositionRange range(Wagon wagon, StepSizes stepSizes, int width, int depth, int height) {
+    return cache.get(wagon, stepSizes, width, depth, height);
+  }
+
+  /** The cache used by {@link #range(Wagon, int)}. */
+  public static PositionRangeCache cache() {
+    return cache;
+  }
+
   // Backward compatibility.
   @Deprecated(forRemoval = true)
   public static List<Dimensions> positions(Wagon wagon, int stepSize) {
@@ -0,0 +1,238 @@
+package se.ltu.kitting.model;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.RandomAccess;
+import org.optaplanner.core.impl.domain.valuerange.AbstractCountableValueRange;
+import org.optaplanner.core.impl.solver.random.RandomUtils;
+
+/**
+ * The grid positions on all the surfaces of a wagon, as a value range that
+ * computes each position from its index on demand.
+ * The positions are never materialized. So the memory used does not depend
+ * on the size of the wagon or the step size.
+ * <p>
+ * {@link #PositionRange(Wagon, int)} contains the same positions, in the same
+ * order, as {@link PositionProvider#positions(Wagon, int, boolean)} (without
+ * randomization).
+ * {@link #forFootprint(Wagon, int, int, int, int)} only contains the
+ * positions where a part with the given footprint fits inside the surface.
+ * <p>
+ * Each surface can have its own step size (see {@link StepSizes}).
+ * <p>
+ * The positions of each surface are ordered by x and then y, and the
+ * surfaces are in the same order as in the wagon.
+ */
+public class PositionRange extends AbstractCountableValueRange<Dimensions> {
+
+  private final StepSizes stepSizes;
+  /**
+   * Whether to also include the largest coordinate along each axis when it
+   * is not a multiple of the step size, so parts can be placed flush against
+   * the far edges.
+   */
+  private final boolean includeMax;
+  private final int[] surfaceIds;
+  /** Step size of each surface. */
+  private final int[] steps;
+  /** Largest x coordinate on each surface (negative if none). */
+  private final int[] maxX;
+  /** Largest y coordinate on each surface (negative if none). */
+  private final int[] maxY;
+  /** Number of y coordinates (columns) on each surface. */
+  private final int[] ySteps;
+  /** Index of the first position of each surface. Has one extra element. */
+  private final long[] offsets;
+
+  /** All grid positions (up to the far edges) of all surfaces. */
+  public PositionRange(final Wagon wagon, final int stepSize) {
+    this(wagon, StepSizes.of(stepSize));
+  }
+
+  /** All grid positions (up to the far edges) of all surfaces. */
+  public PositionRange(final Wagon wagon, final StepSizes stepSizes) {
+    this(wagon, stepSizes, 1, 1, 0, false);
+  }
+
+  private PositionRange(final Wagon wagon, final StepSizes stepSizes,
+      final int width, final int depth, final int height, final boolean includeMax) {
+    final List<Surface> surfaces = wagon.surfaces();
+    final int count = surfaces.size();
+    this.stepSizes = stepSizes;
+    this.includeMax = includeMax;
+    this.surfaceIds = new int[count];
+    this.steps = stepSizes.forSurfaces(count);
+    this.maxX = new int[count];
+    this.maxY = new int[count];
+    this.ySteps = new int[count];
+    this.offsets = new long[count + 1];
+    for (int s = 0; s < count; s++) {
+      final Surface surface = surfaces.get(s);
+      surfaceIds[s] = surface.id;
+      if (includeMax) {
+        // The part must fit inside the surface (see HardScore.partOutside).
+        final boolean fits = height <= surface.height();
+        maxX[s] = fits ? surface.width() - width : -1;
+        maxY[s] = fits ? surface.depth() - depth : -1;
+      } else {
+        // Same bounds as PositionProvider.
+        maxX[s] = surface.origin.getX() + surface.dimensions.getX() - 1;
+        maxY[s] = surface.origin.getY() + surface.dimensions.getY() - 1;
+      }
+      final long xSteps = steps(maxX[s], steps[s]);
+      ySteps[s] = (int) steps(maxY[s], steps[s]);
+      offsets[s + 1] = offsets[s] + xSteps * ySteps[s];
+    }
+  }
+
+  /**
+   * The positions where a part with this (current) width, depth, and height
+   * fits inside the surface. In addition to the grid positions, positions
+   * flush against the right and front edges are included.
+   * Surfaces that are too low for the part are skipped.
+   */
+  public static PositionRange forFootprint(final Wagon wagon, final int stepSize,
+      final int width, final int depth, final int height) {
+    return forFootprint(wagon, StepSizes.of(stepSize), width, depth, height);
+  }
+
+  /** Like {@link #forFootprint(Wagon, int, int, int, int)}, per surface. */
+  public static PositionRange forFootprint(final Wagon wagon, final StepSizes stepSizes,
+      final int width, final int depth, final int height) {
+    return new PositionRange(wagon, stepSizes, width, depth, height, true);
+  }
+
+  // Number of coordinates 0, step, 2*step, ... (and possibly max) <= max.
+  private long steps(final int max, final int step) {
+    if (max < 0) {
+      return 0;
+    }
+    final boolean extra = includeMax && max % step != 0;
+    return max / step + 1 + (extra ? 1 : 0);
+  }
+
+  // The coordinate at this index along an axis with this max.
+  private static int coordinate(final long index, final int max, final int step) {
+    return (int) Math.min(index * step, max);
+  }
+
+  // Whether the coordinate is one of the coordinates along an axis.
+  private boolean onAxis(final int value, final int max, final int step) {
+    return value >= 0 && value <= max && (value % step == 0 || (includeMax && value == max));
+  }
+
+  /** The smallest step size of any surface. */
+  public int getStepSize() {
+    return stepSizes.smallest();
+  }
+
+  public StepSizes getStepSizes() {
+    return stepSizes;
+  }
+
+  @Override
+  public long getSize() {
+    return offsets[offsets.length - 1];
+  }
+
+  @Override
+  public Dimensions get(final long index) {
+    if (index < 0 || index >= getSize()) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of range [0, " + getSize() + ")");
+    }
+    int s = 0;
+    while (index >= offsets[s + 1]) {
+      s++;
+    }
+    final long local = index - offsets[s];
+    final int x = coordinate(local / ySteps[s], maxX[s], steps[s]);
+    final int y = coordinate(local % ySteps[s], maxY[s], steps[s]);
+    return Dimensions.of(x, y, surfaceIds[s]);
+  }
+
+  @Override
+  public boolean contains(final Dimensions position) {
+    if (position == null) {
+      return false;
+    }
+    for (int s = 0; s < surfaceIds.length; s++) {
+      if (surfaceIds[s] == position.z && onAxis(position.x, maxX[s], steps[s])
+          && onAxis(position.y, maxY[s], steps[s])) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public Iterator<Dimensions> createOriginalIterator() {
+    return new Iterator<>() {
+      private long index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < getSize();
+      }
+
+      @Override
+      public Dimensions next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return get(index++);
+      }
+    };
+  }
+
+  @Override
+  public Iterator<Dimensions> createRandomIterator(final Random random) {
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return !isEmpty();
+      }
+
+      @Override
+      public Dimensions next() {
+        if (isEmpty()) {
+          throw new NoSuchElementException();
+        }
+        return get(RandomUtils.nextLong(random, getSize()));
+      }
+    };
+  }
+
+  /**
+   * A read-only list view of this range.
+   * Like the range itself, the view does not store the positions.
+   */
+  public List<Dimensions> asList() {
+    return new ListView();
+  }
+
+  private final class ListView extends AbstractList<Dimensions> implements RandomAccess {
+    @Override
+    public Dimensions get(final int index) {
+      return PositionRange.this.get(index);
+    }
+
+    @Override
+    public int size() {
+      return Math.toIntExact(getSize());
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+      return o instanceof Dimensions && PositionRange.this.contains((Dimensions) o);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "PositionRange(step: " + stepSizes + ", size: " + getSize() + ")";
+  }
+
+}
@@ -0,0 +1,182 @@
+package se.ltu.kitting.model;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A bounded, thread-safe cache of position ranges.
+ * Ranges are keyed by the geometry of the wagon's surfaces (ID, origin and
+ * size, which is all a {@link PositionRange} depends on), the step sizes and,
+ * for part-specific ranges, the footprint of the part.
+ * So different wagon instances with the same surfaces share the same range.
+ * When full, the least recently used range is evicted.
+ * <p>
+ * Ranges are immutable, so they can safely be shared across solver threads
+ * and requests.
+ */
+public class PositionRangeCache {
+
+  public static final int defaultCapacity = 256;
+
+  private final int capacity;
+  private final Map<Key,PositionRange> ranges;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public PositionRangeCache() {
+    this(defaultCapacity);
+  }
+
+  public PositionRangeCache(final int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Illegal capacity: " + capacity);
+    }
+    this.capacity = capacity;
+    this.ranges = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key,PositionRange> eldest) {
+        return size() > PositionRangeCache.this.capacity;
+      }
+    };
+  }
+
+  /** Returns the (possibly cached) range for this wagon and step size. */
+  public PositionRange get(final Wagon wagon, final int stepSize) {
+    return get(wagon, StepSizes.of(stepSize));
+  }
+
+  /** Returns the (possibly cached) range for this wagon and step sizes. */
+  public PositionRange get(final Wagon wagon, final StepSizes stepSizes) {
+    return get(new Key(wagon, stepSizes, -1, -1, -1), () -> new PositionRange(wagon, stepSizes));
+  }
+
+  /**
+   * Returns the (possibly cached) range of positions where a part with this
+   * footprint fits.
+   * @see PositionRange#forFootprint(Wagon, int, int, int, int)
+   */
+  public PositionRange get(final Wagon wagon, final int stepSize,
+      final int width, final int depth, final int height) {
+    return get(wagon, StepSizes.of(stepSize), width, depth, height);
+  }
+
+  /**
+   * Returns the (possibly cached) range of positions where a part with this
+   * footprint fits.
+   * @see PositionRange#forFootprint(Wagon, StepSizes, int, int, int)
+   */
+  public PositionRange get(final Wagon wagon, final StepSizes stepSizes,
+      final int width, final int depth, final int height) {
+    final Key key = new Key(wagon, stepSizes, width, depth, height);
+    return get(key, () -> PositionRange.forFootprint(wagon, stepSizes, width, depth, height));
+  }
+
+  private PositionRange get(final Key key, final Supplier<PositionRange> range) {
+    synchronized (ranges) {
+      final PositionRange cached = ranges.get(key);
+      if (cached != null) {
+        hits.incrementAndGet();
+        return cached;
+      }
+      misses.incrementAndGet();
+      final PositionRange result = range.get();
+      ranges.put(key, result);
+      return result;
+    }
+  }
+
+  public long hits() {
+    return hits.get();
+  }
+
+  public long misses() {
+    return misses.get();
+  }
+
+  /** Fraction of lookups that were hits, or 0 if there have been none. */
+  public double hitRate() {
+    final long hits = hits();
+    final long total = hits + misses();
+    return total == 0 ? 0.0 : (double) hits / total;
+  }
+
+  public int size() {
+    synchronized (ranges) {
+      return ranges.size();
+    }
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  /** Removes all ranges and resets the counters. */
+  public void clear() {
+    synchronized (ranges) {
+      ranges.clear();
+      hits.set(0);
+      misses.set(0);
+    }
+  }
+
+  /** Hits, misses, size and capacity (for monitoring). */
+  public Map<String,Number> stats() {
+    return Map.of(
+      "hits", hits(),
+      "misses", misses(),
+      "hitRate", hitRate(),
+      "size", size(),
+      "capacity", capacity
+    );
+  }
+
+  @Override
+  public String toString() {
+    return "PositionRangeCache" + stats();
+  }
+
+  /**
+   * Footprint (-1 if none), followed by (id, x, y, width, depth, height,
+   * step size) of each surface.
+   */
+  private static final class Key {
+    private final int[] values;
+    private final int hash;
+
+    Key(final Wagon wagon, final StepSizes stepSizes, final int width, final int depth, final int height) {
+      final List<Surface> surfaces = wagon.surfaces();
+      final int[] steps = stepSizes.forSurfaces(surfaces.size());
+      values = new int[3 + 7 * surfaces.size()];
+      values[0] = width;
+      values[1] = depth;
+      values[2] = height;
+      int i = 3;
+      for (int s = 0; s < steps.length; s++) {
+        final Surface surface = surfaces.get(s);
+        values[i++] = surface.id;
+        values[i++] = surface.origin.x;
+        values[i++] = surface.origin.y;
+        values[i++] = surface.dimensions.x;
+        values[i++] = surface.dimensions.y;
+        values[i++] = surface.dimensions.z;
+        values[i++] = steps[s];
+      }
+      hash = Arrays.hashCode(values);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      return other instanceof Key && Arrays.equals(values, ((Key) other).values);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+}
@@ -0,0 +1,134 @@
+package se.ltu.kitting.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The position step size of each surface of a wagon (in the same order as
+ * the surfaces). A single step size applies to all surfaces.
+ * <p>
+ * Besides an absolute step size, the step sizes can be derived from a
+ * target number of positions per surface (so that a large surface does not
+ * get many more positions than a small one), or from the smallest part
+ * dimension in the kit (so that the grid is fine enough for the parts).
+ * Immutable.
+ */
+public final class StepSizes {
+
+  private final int[] steps;
+
+  private StepSizes(final int[] steps) {
+    if (steps.length == 0) {
+      throw new IllegalArgumentException("Need at least one step size");
+    }
+    for (final int step : steps) {
+      if (step < 1) {
+        throw new IllegalArgumentException("Illegal step size: " + step);
+      }
+    }
+    this.steps = steps;
+  }
+
+  /**
+   * These step sizes, one per surface (or a single one for all surfaces).
+   */
+  public static StepSizes of(final int ... steps) {
+    return new StepSizes(steps.clone());
+  }
+
+  /**
+   * The step size of each surface is chosen so that the surface has about
+   * this many (grid) positions, regardless of its size.
+   * Empty surfaces get step size 1.
+   */
+  public static StepSizes forPositionCount(final Wagon wagon, final int positions) {
+    if (positions < 1) {
+      throw new IllegalArgumentException("Illegal position count: " + positions);
+    }
+    final List<Surface> surfaces = wagon.surfaces();
+    final int[] steps = new int[surfaces.size()];
+    for (int s = 0; s < steps.length; s++) {
+      final Surface surface = surfaces.get(s);
+      steps[s] = forArea((double) Math.max(surface.width(), 0) * Math.max(surface.depth(), 0), positions);
+    }
+    return steps.length == 0 ? of(1) : new StepSizes(steps);
+  }
+
+  /**
+   * The step size that gives about this many (grid) positions on this
+   * area, but at least 1.
+   */
+  public static int forArea(final double area, final int positions) {
+    if (positions < 1) {
+      throw new IllegalArgumentException("Illegal position count: " + positions);
+    }
+    return Math.max(1, (int) Math.round(Math.sqrt(area / positions)));
+  }
+
+  /**
+   * A single step size that is this fraction of the smallest dimension
+   * (along any axis) of any of the parts, but at least 1.
+   */
+  public static StepSizes forSmallestPart(final Collection<Part> parts, final double fraction) {
+    if (!(fraction > 0)) {
+      throw new IllegalArgumentException("Illegal fraction: " + fraction);
+    }
+    int smallest = Integer.MAX_VALUE;
+    for (final Part part : parts) {
+      final Dimensions size = part.getSize();
+      smallest = Math.min(smallest, Math.min(size.x, Math.min(size.y, size.z)));
+    }
+    if (smallest == Integer.MAX_VALUE) {
+      return of(1);
+    }
+    return of(Math.max(1, (int) (smallest * fraction)));
+  }
+
+  /** The step size of the surface at this index (in the wagon). */
+  public int get(final int surfaceIndex) {
+    return steps.length == 1 ? steps[0] : steps[surfaceIndex];
+  }
+
+  /** Whether all surfaces have the same step size. */
+  public boolean isUniform() {
+    return Arrays.stream(steps).allMatch(step -> step == steps[0]);
+  }
+
+  /** The smallest step size of any surface. */
+  public int smallest() {
+    return Arrays.stream(steps).min().getAsInt();
+  }
+
+  /**
+   * The step sizes of this many surfaces.
+   * @throws IllegalArgumentException if this has step sizes for a
+   * different number of surfaces
+   */
+  public int[] forSurfaces(final int count) {
+    if (steps.length != 1 && steps.length != count) {
+      throw new IllegalArgumentException("Have " + steps.length + " step sizes for " + count + " surfaces");
+    }
+    final int[] result = new int[count];
+    for (int s = 0; s < count; s++) {
+      result[s] = get(s);
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    return other instanceof StepSizes && Arrays.equals(steps, ((StepSizes) other).steps);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(steps);
+  }
+
+  @Override
+  public String toString() {
+    return steps.length == 1 ? String.valueOf(steps[0]) : Arrays.toString(steps);
+  }
+
+}
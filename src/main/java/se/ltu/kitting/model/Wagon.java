@@ -81,12 +81,14 @@ public class Wagon {
   }
 
   public Surface getSurfaceById(int id) {
-    final var result = surfaces.stream().filter(s -> s.id == id).findAny();
-    if (result.isEmpty()) {
-      final var ids = surfaces.stream().map(s -> s.id).collect(toList());
-      throw new IllegalArgumentException("Could not find surface id " + id + " in " + ids);
+    // Plain loop, since this is called for every part when scoring.
+    for (Surface surface : surfaces) {
+      if (surface.id == id) {
+        return surface;
+      }
     }
-    return result.get();
+    final var ids = surfaces.stream().map(s -> s.id).collect(toList());
+    throw new IllegalArgumentException("Could not find surface id " + id + " in " + ids);
   }
 
   public Surface surfaceOf(Dimensions position) {
@@ -2,10 +2,10 @@ package se.ltu.kitting.score;
 
 import se.ltu.kitting.model.Layout;
 import se.ltu.kitting.model.Surface;
+import se.ltu.kitting.model.Wagon;
 import se.ltu.kitting.model.Part;
 import se.ltu.kitting.model.Dimensions;
 import java.util.List;
-import ch.rfin.util.Pair;
 
 /**
  * Calculates the hard score for a solution.
@@ -24,50 +24,55 @@ public class HardScore {
     return -(overlap + outside + disallowedSide + misplacedParts);
   }
 
-  // TODO: first filter on fully initialized?
   // Counts the number of parts that overlap eachother
   // NOTE: Counts same overlap multiple times
+  // Only pairs of parts found by the overlap index are compared.
   public static int countOverlappingParts(Layout layout) {
+    return OverlapIndex.of(layout.getParts()).countOverlappingPairs();
+  }
+
+  // Counts the number of other initialized parts that overlap this part
+  public static int countOverlappingParts(Layout layout, Part part) {
+    if (!part.fullyInitialized()) {
+      return 0;
+    }
+    // Indexed loop, so that no iterator is allocated.
     List<Part> parts = layout.getParts();
     int count = 0;
-    for (int i = 0; i < parts.size() - 1; i++) {
-      final Part p1 = parts.get(i);
-      if (!p1.fullyInitialized()) {
-        continue;
-      }
-      for(int j = i + 1; j < parts.size(); j++) {
-        final Part p2 = parts.get(j);
-        if (p2.fullyInitialized()) {
-          if(partsOverlap(p1, p2)) {
-            count++;
-          }
-        }
+    for (int i = 0; i < parts.size(); i++) {
+      Part other = parts.get(i);
+      if (other != part && other.fullyInitialized() && partsOverlap(part, other)) {
+        count++;
       }
     }
     return count;
   }
 
+  // Return negative score for this part being outside, placed on disallowed side
+  // or misplaced. Overlap is not included since it depends on pairs of parts.
+  public static int getHardScore(Layout layout, Part part) {
+    int outside = partOutside(layout, part) ? 1 : 0;
+    int disallowedSide = disallowedSideDown(part) ? 1 : 0;
+    int misplaced = partMisplaced(layout, part) ? 1 : 0;
+    return -(outside + disallowedSide + misplaced);
+  }
+
   // Check if two parts overlap - considering maximal margin between two parts
   public static boolean partsOverlap(Part p1, Part p2) {
     // Parts do not overlap if they are on different surfaces
-    if (p1.getPosition().z != p2.getPosition().z) {
+    if (p1.surfaceId() != p2.surfaceId()) {
       return false;
     }
-    Pair<Dimensions,Dimensions> currentRegionP1 = p1.currentRegion();
-    Pair<Dimensions,Dimensions> currentRegionP2 = p2.currentRegion();
+    // Uses the primitive region accessors to avoid allocating in the hot path.
     int margin = Math.max(p1.getMargin(), p2.getMargin());
-    Dimensions startPositionP1 = currentRegionP1._1;
-    Dimensions endPositionP1 = currentRegionP1._2;
-    Dimensions startPositionP2 = currentRegionP2._1;
-    Dimensions endPositionP2 = currentRegionP2._2;
-    int rect1xLeft = startPositionP1.getX() - margin;
-    int rect1xRight = endPositionP1.getX() + margin;
-    int rect1yBack = startPositionP1.getY() - margin;
-    int rect1yFront = endPositionP1.getY() + margin;
-    int rect2xLeft = startPositionP2.getX();
-    int rect2xRight = endPositionP2.getX();
-    int rect2yBack = startPositionP2.getY();
-    int rect2yFront = endPositionP2.getY();
+    int rect1xLeft = p1.left() - margin;
+    int rect1xRight = p1.right() + margin;
+    int rect1yBack = p1.back() - margin;
+    int rect1yFront = p1.front() + margin;
+    int rect2xLeft = p2.left();
+    int rect2xRight = p2.right();
+    int rect2yBack = p2.back();
+    int rect2yFront = p2.front();
     return rect1xLeft <= rect2xRight && rect1xRight >= rect2xLeft &&
       rect1yBack <= rect2yFront && rect1yFront >= rect2yBack;
   }
@@ -77,21 +82,31 @@ public class HardScore {
     List<Part> parts = layout.getParts();
     int count = 0;
     for (Part part : parts) {
-      if (part.fullyInitialized()) {
-        if (partOutside(part, layout.surfaceOf(part))) {
-          count++;
-        }
+      if (partOutside(layout, part)) {
+        count++;
       }
     }
     return count;
   }
 
+  // Checks if an initialized part is outside of its surface.
+  public static boolean partOutside(Layout layout, Part part) {
+    return partOutside(layout.getWagon(), part);
+  }
+
+  // Checks if an initialized part is outside of its surface on the wagon.
+  public static boolean partOutside(Wagon wagon, Part part) {
+    return part.fullyInitialized() && partOutside(part, wagon.getSurfaceById(part.surfaceId()));
+  }
+
   // Checks if part is outside of surface.
   public static boolean partOutside(Part part, Surface surface) {
-    var tmp = part.getPosition();
-    Dimensions partEnd = Dimensions.of(tmp.x, tmp.y, 0).plus(part.currentDimensions()); // Part position is relative to surface. So z = 0.
-    Dimensions surfaceEnd = surface.dimensions;
-    return partOutside(partEnd, surfaceEnd);
+    // Same as partOutside(partEnd, surfaceEnd), but without allocating.
+    // Part position is relative to surface. So z = 0.
+    boolean height = part.height() > surface.height();
+    boolean depth = part.back() + part.depth() > surface.depth();
+    boolean width = part.left() + part.width() > surface.width();
+    return height || depth || width;
   }
 
   // Note: given that positions are only generated from (0,0) UP TO surface
@@ -109,15 +124,18 @@ public class HardScore {
     List<Part> parts = layout.getParts();
 		int count = 0;
 		for(Part part : parts) {
-			if(part.getPosition() != null && part.getSideDown() != null){
-				if(!allowedSideDown(part)){
-					count++;
-				}
+			if(disallowedSideDown(part)){
+				count++;
 			}
 		}
 		return count;
   }
 
+  // Check if a placed part is on a disallowed side
+  public static boolean disallowedSideDown(Part part){
+    return part.getPosition() != null && part.getSideDown() != null && !allowedSideDown(part);
+  }
+
   // Check if placed side down is allowed
   public static boolean allowedSideDown(Part part){
 		return part.getAllowedDown().contains(part.getSideDown());
@@ -129,17 +147,32 @@ public class HardScore {
     List<Part> parts = layout.getParts();
     int count = 0;
     for (Part part : parts) {
-      if (part.hasMandatoryHint() && !partMatchesHint(layout, part)) {
+      if (partMisplaced(layout, part)) {
         count++;
       }
     }
     return count;
   }
 
+  // Check whether a part with a mandatory hint does not match it.
+  public static boolean partMisplaced(Layout layout, Part part) {
+    return partMisplaced(layout.getWagon(), part);
+  }
+
+  // Check whether a part with a mandatory hint does not match it.
+  public static boolean partMisplaced(Wagon wagon, Part part) {
+    return part.hasMandatoryHint() && !partMatchesHint(wagon, part);
+  }
+
   // Check whether part matches the layout hint.
   public static boolean partMatchesHint(Layout layout, Part part) {
+    return partMatchesHint(layout.getWagon(), part);
+  }
+
+  // Check whether part matches the layout hint.
+  public static boolean partMatchesHint(Wagon wagon, Part part) {
     return positionMatchesHint(part) &&
-      surfaceMatchesHint(layout, part) &&
+      surfaceMatchesHint(wagon, part) &&
       sideMatchesHint(part) &&
       rotationMatchesHint(part);
   }
@@ -150,8 +183,8 @@ public class HardScore {
     if (part.getPosition() == null || part.getRotation() == null || part.getSideDown() == null) {
       return false;
     }
-    boolean sameX = part.currentCenter().getX() == part.getHint().centerPosition().getX();
-    boolean sameY = part.currentCenter().getY() == part.getHint().centerPosition().getY();
+    boolean sameX = part.centerX() == part.getHint().centerPosition().getX();
+    boolean sameY = part.centerY() == part.getHint().centerPosition().getY();
     return sameX && sameY;
   }
 
@@ -160,14 +193,29 @@ public class HardScore {
     return layout.surfaceOf(part).id() == part.getHint().surfaceId();
   }
 
+  // Check whether part is placed on the surface specified in hint.
+  public static boolean surfaceMatchesHint(Wagon wagon, Part part) {
+    return wagon.getSurfaceById(part.surfaceId()).id() == part.getHint().surfaceId();
+  }
+
   // Check whether part is placed on side specified in hint.
   public static boolean sideMatchesHint(Part part) {
-    return part.getHint().side().map(s -> part.getSideDown() == s).orElse(true);
+    var side = part.getHint().side();
+    return side.isEmpty() || side.get() == part.getSideDown();
   }
 
   // Check whether part has the rotation specified in hint.
   public static boolean rotationMatchesHint(Part part) {
-    return part.getHint().rotation().map(r -> part.getRotation() == r).orElse(true);
+    var rotation = part.getHint().rotation();
+    return rotation.isEmpty() || rotation.get() == part.getRotation();
+  }
+
+  /**
+   * Compute the total area of overlap between all pairs of overlapping parts.
+   * Takes margin into account.
+   */
+  public static int totalOverlappingArea(Layout layout) {
+    return OverlapIndex.of(layout.getParts()).totalOverlappingArea();
   }
 
   /**
@@ -176,24 +224,18 @@ public class HardScore {
    */
   public static int overlappingPartArea(Part p1, Part p2) {
     // Parts do not overlap if they are on different surfaces
-    if (p1.getPosition().z != p2.getPosition().z) {
+    if (p1.surfaceId() != p2.surfaceId()) {
       return 0;
     }
-    Pair<Dimensions,Dimensions> currentRegionP1 = p1.currentRegion();
-    Pair<Dimensions,Dimensions> currentRegionP2 = p2.currentRegion();
     int margin = Math.max(p1.getMargin(), p2.getMargin());
-    Dimensions startPositionP1 = currentRegionP1._1;
-    Dimensions endPositionP1 = currentRegionP1._2;
-    Dimensions startPositionP2 = currentRegionP2._1;
-    Dimensions endPositionP2 = currentRegionP2._2;
-    int rect1xLeft = startPositionP1.getX() - margin;
-    int rect1xRight = endPositionP1.getX() + margin;
-    int rect1yBack = startPositionP1.getY() - margin;
-    int rect1yFront = endPositionP1.getY() + margin;
-    int rect2xLeft = startPositionP2.getX();
-    int rect2xRight = endPositionP2.getX();
-    int rect2yBack = startPositionP2.getY();
-    int rect2yFront = endPositionP2.getY();
+    int rect1xLeft = p1.left() - margin;
+    int rect1xRight = p1.right() + margin;
+    int rect1yBack = p1.back() - margin;
+    int rect1yFront = p1.front() + margin;
+    int rect2xLeft = p2.left();
+    int rect2xRight = p2.right();
+    int rect2yBack = p2.back();
+    int rect2yFront = p2.front();
 
     int left = Math.max(rect1xLeft, rect2xLeft);
     int right = Math.min(rect1xRight, rect2xRight);
@@ -205,12 +247,10 @@ public class HardScore {
   }
 
   public static int partOutsideArea(Part part, Surface surface) {
-    var tmp = part.getPosition();
-    // Part position is relative to surface. So z = 0.
-    Dimensions partEnd = Dimensions.of(tmp.x, tmp.y, 0)
-      .plus(part.currentDimensions());
-    Dimensions surfaceEnd = surface.dimensions;
-    return areaOutside(partEnd, surfaceEnd);
+    // Same as areaOutside(partEnd, surfaceEnd), but without allocating.
+    int depth = Math.min(0, part.back() + part.depth() - surface.depth());
+    int width = Math.min(0, part.left() + part.width() - surface.width());
+    return depth * width;
   }
 
   // Note: given that positions are only generated from (0,0) UP TO surface
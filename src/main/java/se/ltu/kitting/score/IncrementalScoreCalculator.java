@@ -0,0 +1,85 @@
+package se.ltu.kitting.score;
+
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.Part;
+import java.util.List;
+
+/**
+ * Incremental version of {@link ScoreCalculator}.
+ * Produces exactly the same score, but instead of rescanning the whole layout
+ * for every move, the contribution of a part is retracted before one of its
+ * variables changes and inserted again afterwards.
+ * Only the pairs involving the changed part are rechecked for overlap, so a
+ * move costs O(n) rather than O(n²).
+ * @see HardScore
+ * @see SoftScore
+ */
+public class IncrementalScoreCalculator
+  implements org.optaplanner.core.api.score.calculator.IncrementalScoreCalculator<Layout, HardSoftLongScore> {
+
+  private Layout layout;
+  private long hardScore;
+  private long softScore;
+
+  @Override
+  public void resetWorkingSolution(Layout layout) {
+    this.layout = layout;
+    hardScore = 0;
+    softScore = 0;
+    final List<Part> parts = layout.getParts();
+    for (Part part : parts) {
+      hardScore += HardScore.getHardScore(layout, part);
+      softScore += SoftScore.getSoftScore(part);
+    }
+    hardScore -= HardScore.countOverlappingParts(layout);
+  }
+
+  @Override
+  public void beforeEntityAdded(Object entity) {
+    // Nothing to do until the part is in the layout.
+  }
+
+  @Override
+  public void afterEntityAdded(Object entity) {
+    insert((Part) entity);
+  }
+
+  @Override
+  public void beforeVariableChanged(Object entity, String variableName) {
+    retract((Part) entity);
+  }
+
+  @Override
+  public void afterVariableChanged(Object entity, String variableName) {
+    insert((Part) entity);
+  }
+
+  @Override
+  public void beforeEntityRemoved(Object entity) {
+    retract((Part) entity);
+  }
+
+  @Override
+  public void afterEntityRemoved(Object entity) {
+    // Already retracted.
+  }
+
+  @Override
+  public HardSoftLongScore calculateScore() {
+    return HardSoftLongScore.of(hardScore, softScore);
+  }
+
+  private void insert(Part part) {
+    hardScore += HardScore.getHardScore(layout, part);
+    hardScore -= HardScore.countOverlappingParts(layout, part);
+    softScore += SoftScore.getSoftScore(part);
+  }
+
+  private void retract(Part part) {
+    hardScore -= HardScore.getHardScore(layout, part);
+    hardScore += HardScore.countOverlappingParts(layout, part);
+    softScore -= SoftScore.getSoftScore(part);
+  }
+
+}
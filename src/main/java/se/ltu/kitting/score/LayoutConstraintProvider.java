@@ -0,0 +1,86 @@
+package se.ltu.kitting.score;
+
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import org.optaplanner.core.api.score.stream.Constraint;
+import org.optaplanner.core.api.score.stream.ConstraintFactory;
+import org.optaplanner.core.api.score.stream.ConstraintProvider;
+import org.optaplanner.core.api.score.stream.Joiners;
+import se.ltu.kitting.model.Part;
+import se.ltu.kitting.model.Wagon;
+
+/**
+ * The rules of {@link HardScore} and {@link SoftScore} expressed as
+ * constraint streams. Gives the same score as {@link ScoreCalculator}, but
+ * lets OptaPlanner do the incremental bookkeeping and justify each penalty.
+ * <p>
+ * Note that {@code from} only matches fully initialized parts, which is what
+ * the overlap and outside rules need, while the other rules also apply to
+ * partially initialized parts and therefore use {@code fromUnfiltered}.
+ * <p>
+ * Use with {@code constraintProviderClass} in the solver config.
+ */
+public class LayoutConstraintProvider implements ConstraintProvider {
+
+  public static final String overlap = "Overlapping parts";
+  public static final String outside = "Part outside surface";
+  public static final String disallowedSide = "Disallowed side down";
+  public static final String misplaced = "Mandatory hint not matched";
+  public static final String notPreferredSide = "Not on preferred side";
+  public static final String distance = "Distance to mandatory position";
+
+  @Override
+  public Constraint[] defineConstraints(ConstraintFactory factory) {
+    return new Constraint[] {
+      overlappingParts(factory),
+      partsOutside(factory),
+      disallowedSidesDown(factory),
+      misplacedParts(factory),
+      notPreferredSidesDown(factory),
+      distanceToMandatoryPosition(factory),
+    };
+  }
+
+  // Hard constraints.
+
+  Constraint overlappingParts(ConstraintFactory factory) {
+    return factory.fromUniquePair(Part.class, Joiners.equal(p -> p.getPosition().z))
+      .filter(HardScore::partsOverlap)
+      .penalize(overlap, HardSoftLongScore.ONE_HARD);
+  }
+
+  Constraint partsOutside(ConstraintFactory factory) {
+    return factory.from(Part.class)
+      .join(Wagon.class)
+      .filter((part, wagon) -> HardScore.partOutside(wagon, part))
+      .penalize(outside, HardSoftLongScore.ONE_HARD);
+  }
+
+  Constraint disallowedSidesDown(ConstraintFactory factory) {
+    return factory.fromUnfiltered(Part.class)
+      .filter(HardScore::disallowedSideDown)
+      .penalize(disallowedSide, HardSoftLongScore.ONE_HARD);
+  }
+
+  Constraint misplacedParts(ConstraintFactory factory) {
+    return factory.fromUnfiltered(Part.class)
+      .filter(Part::hasMandatoryHint)
+      .join(Wagon.class)
+      .filter((part, wagon) -> HardScore.partMisplaced(wagon, part))
+      .penalize(misplaced, HardSoftLongScore.ONE_HARD);
+  }
+
+  // Soft constraints.
+
+  Constraint notPreferredSidesDown(ConstraintFactory factory) {
+    return factory.fromUnfiltered(Part.class)
+      .filter(SoftScore::notPreferredSideDown)
+      .penalize(notPreferredSide, HardSoftLongScore.ONE_SOFT);
+  }
+
+  Constraint distanceToMandatoryPosition(ConstraintFactory factory) {
+    return factory.fromUnfiltered(Part.class)
+      .filter(part -> part.getPosition() != null && part.hasMandatoryHint())
+      .penalize(distance, HardSoftLongScore.ONE_SOFT, SoftScore::distanceToPosition);
+  }
+
+}
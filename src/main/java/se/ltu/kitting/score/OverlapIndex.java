@@ -0,0 +1,117 @@
+package se.ltu.kitting.score;
+
+import se.ltu.kitting.model.Part;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Sweep-and-prune index over the parts placed on each surface.
+ * Used to find the pairs of parts that could overlap without comparing every
+ * part with every other part.
+ * <p>
+ * Each part is inflated by its own margin and the parts on a surface are
+ * sorted by their (inflated) left edge. Sweeping from left to right, a part
+ * only needs to be compared with the parts that start before it ends.
+ * Since the margin used when checking two parts is the larger of their
+ * margins, inflating both parts by their own margins yields a superset of the
+ * overlapping pairs. So candidates must still be checked using
+ * {@link HardScore#partsOverlap(Part, Part)}.
+ * <p>
+ * The index is a snapshot. It does not track later changes to the parts.
+ * Only fully initialized parts are indexed.
+ * <p>
+ * This only speeds up scoring the whole layout at once, as the
+ * {@link ScoreCalculator} does. The {@link IncrementalScoreCalculator} only
+ * compares the moved part with the others, which is already linear, so
+ * building an index for each move would not pay off.
+ */
+public class OverlapIndex {
+
+  private static final Comparator<Entry> byLeft = Comparator.comparingInt(e -> e.left);
+
+  /** The entries on each surface, sorted by left edge. */
+  private final Map<Integer,Entry[]> surfaces;
+
+  private OverlapIndex(Map<Integer,Entry[]> surfaces) {
+    this.surfaces = surfaces;
+  }
+
+  /** Index the fully initialized parts among these parts. */
+  public static OverlapIndex of(final Collection<Part> parts) {
+    final Map<Integer,List<Entry>> bySurface = new HashMap<>();
+    for (Part part : parts) {
+      if (part.fullyInitialized()) {
+        bySurface.computeIfAbsent(part.surfaceId(), z -> new ArrayList<>()).add(new Entry(part));
+      }
+    }
+    final Map<Integer,Entry[]> surfaces = new HashMap<>();
+    for (var surface : bySurface.entrySet()) {
+      final Entry[] entries = surface.getValue().toArray(new Entry[0]);
+      Arrays.sort(entries, byLeft);
+      surfaces.put(surface.getKey(), entries);
+    }
+    return new OverlapIndex(surfaces);
+  }
+
+  /**
+   * Calls the action once for each pair of parts on the same surface whose
+   * margin-inflated regions intersect. These pairs may or may not overlap.
+   */
+  public void forEachCandidatePair(final BiConsumer<Part,Part> action) {
+    for (Entry[] entries : surfaces.values()) {
+      for (int i = 0; i < entries.length - 1; i++) {
+        final Entry a = entries[i];
+        for (int j = i + 1; j < entries.length && entries[j].left <= a.right; j++) {
+          final Entry b = entries[j];
+          if (a.back <= b.front && a.front >= b.back) {
+            action.accept(a.part, b.part);
+          }
+        }
+      }
+    }
+  }
+
+  /** Count the number of pairs of parts that overlap. */
+  public int countOverlappingPairs() {
+    final int[] count = {0};
+    forEachCandidatePair((p1, p2) -> {
+      if (HardScore.partsOverlap(p1, p2)) {
+        count[0]++;
+      }
+    });
+    return count[0];
+  }
+
+  /** The total area of overlap (taking margin into account) of all pairs. */
+  public int totalOverlappingArea() {
+    final int[] area = {0};
+    forEachCandidatePair((p1, p2) -> {
+      if (HardScore.partsOverlap(p1, p2)) {
+        area[0] += HardScore.overlappingPartArea(p1, p2);
+      }
+    });
+    return area[0];
+  }
+
+  /** A part together with its region, inflated by its margin. */
+  private static final class Entry {
+    final Part part;
+    final int left, right, back, front;
+
+    Entry(Part part) {
+      final int margin = part.getMargin();
+      this.part = part;
+      this.left = part.left() - margin;
+      this.right = part.right() + margin;
+      this.back = part.back() - margin;
+      this.front = part.front() + margin;
+    }
+  }
+
+}
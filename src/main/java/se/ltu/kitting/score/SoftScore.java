@@ -26,16 +26,18 @@ public class SoftScore {
     List<Part> parts = layout.getParts();
 		int count = 0;
 		for(Part part : parts) {
-			if(part.getPosition() == null || part.getSideDown() == null){
-				continue;
-			}
-			if(!preferredSideDown(part)){
+			if(notPreferredSideDown(part)){
 				count++;
 			}
 		}
 		return count;
   }
 
+  // Check if a placed part is on a side other than the preferred one
+  public static boolean notPreferredSideDown(Part part) {
+    return part.getPosition() != null && part.getSideDown() != null && !preferredSideDown(part);
+  }
+
   // Check if placed side down is preferred
   public static boolean preferredSideDown(Part part) {
     if (part.getPreferredDown() == null){
@@ -53,20 +55,30 @@ public class SoftScore {
     List<Part> parts = layout.getParts();
 		int totalDistance = 0;
 		for(Part part : parts) {
-			if(part.getPosition() != null && part.getHint() != null){
-        // TODO: only count this if mandatory?
-				if(part.getHint().isMandatory()){
-					totalDistance += distanceToPosition(part);
-				}
-			}
+			totalDistance += distanceToMandatoryPosition(part);
 		}
 		return totalDistance;
   }
 
+  // Distance to the mandatory position, or 0 if there is none.
+  public static int distanceToMandatoryPosition(Part part) {
+    // TODO: only count this if mandatory?
+    if (part.getPosition() != null && part.hasMandatoryHint()) {
+      return distanceToPosition(part);
+    }
+    return 0;
+  }
+
+  // Return negative score for this part not being on preferred side and not on mandatory position
+  public static int getSoftScore(Part part) {
+    int notPreferred = notPreferredSideDown(part) ? 1 : 0;
+    return -(notPreferred + distanceToMandatoryPosition(part));
+  }
+
   // Distance between part;s current postion and mandatory position.
   public static int distanceToPosition(Part part) {
-    int x = Math.abs(part.currentCenter().getX() - part.getHint().centerPosition().getX());
-    int y = Math.abs(part.currentCenter().getY() - part.getHint().centerPosition().getY());
+    int x = Math.abs(part.centerX() - part.getHint().centerPosition().getX());
+    int y = Math.abs(part.centerY() - part.getHint().centerPosition().getY());
     return x + y;
   }
 
@@ -0,0 +1,85 @@
+package se.ltu.kitting.test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+import se.ltu.kitting.model.Dimensions;
+import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.model.Part;
+import se.ltu.kitting.model.Rotation;
+import se.ltu.kitting.model.Side;
+import se.ltu.kitting.score.HardScore;
+import se.ltu.kitting.score.IncrementalScoreCalculator;
+
+/**
+ * Measures how many bytes the geometry and scoring hot paths allocate per
+ * operation, using the per-thread allocation counter of the JVM.
+ * Each operation is warmed up before it is measured so that the JIT has had
+ * a chance to remove allocations that do not escape.
+ */
+public class AllocationBenchmark {
+
+  private static final int warmup = 200_000;
+  private static final int iterations = 1_000_000;
+  private static long sink;
+
+  public static void main(String[] args) {
+    final int partCount = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+    final Layout layout = randomLayout(partCount, new Random(1));
+    final List<Part> parts = layout.getParts();
+    final Part p1 = parts.get(0);
+    final Part p2 = parts.get(1);
+
+    measure("Part.width/depth/height", () -> sink += p1.width() + p1.depth() + p1.height());
+    measure("Part.currentRegion", () -> sink += p1.currentRegion()._2.x);
+    measure("HardScore.partsOverlap", () -> sink += HardScore.partsOverlap(p1, p2) ? 1 : 0);
+    measure("HardScore.partOutside", () -> sink += HardScore.partOutside(layout, p1) ? 1 : 0);
+
+    final var calculator = new IncrementalScoreCalculator();
+    calculator.resetWorkingSolution(layout);
+    final var rng = new Random(2);
+    measure("IncrementalScoreCalculator move (" + partCount + " parts)", () -> {
+      final Part part = parts.get(rng.nextInt(parts.size()));
+      final Rotation rotation = part.getRotation() == Rotation.ZERO ? Rotation.Z90 : Rotation.ZERO;
+      calculator.beforeVariableChanged(part, "rotation");
+      part.setRotation(rotation);
+      calculator.afterVariableChanged(part, "rotation");
+      sink += calculator.calculateScore().getHardScore();
+    });
+  }
+
+  public static void measure(String name, Runnable op) {
+    for (int i = 0; i < warmup; i++) {
+      op.run();
+    }
+    final long before = allocatedBytes();
+    for (int i = 0; i < iterations; i++) {
+      op.run();
+    }
+    final long after = allocatedBytes();
+    final double bytesPerOp = (double) (after - before) / iterations;
+    System.out.println(String.format("%-50s %8.1f bytes/op", name, bytesPerOp));
+  }
+
+  private static long allocatedBytes() {
+    final var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /** A layout with randomly placed parts on a 1200x800 surface. */
+  public static Layout randomLayout(int partCount, Random rng) {
+    final var builder = LayoutBuilder.builder().surface(1200, 800, 1000);
+    for (int i = 0; i < partCount; i++) {
+      builder.part().dimensions(50 + rng.nextInt(200), 50 + rng.nextInt(200), 50 + rng.nextInt(200))
+        .margin(rng.nextInt(3) * 5).add();
+    }
+    final Layout layout = builder.build();
+    for (Part part : layout.getParts()) {
+      part.setPosition(Dimensions.of(rng.nextInt(1000), rng.nextInt(600), -1));
+      part.setRotation(rng.nextBoolean() ? Rotation.ZERO : Rotation.Z90);
+      part.setSideDown(Side.values()[rng.nextInt(6)]);
+    }
+    return layout;
+  }
+
+}
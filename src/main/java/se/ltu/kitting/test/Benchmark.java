@@ -12,10 +12,11 @@ import java.util.stream.Stream;
 import java.util.stream.Collector;
 import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
 import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
-import org.optaplanner.core.api.solver.SolverFactory;
 import org.optaplanner.core.api.solver.Solver;
 import org.optaplanner.core.config.solver.SolverConfig;
 import se.ltu.kitting.model.Layout;
+import se.ltu.kitting.util.SolverFactories;
+import se.ltu.kitting.util.SolverTelemetry;
 import se.ltu.kitting.util.StreamUtil;
 
 import ch.rfin.util.Pair;
@@ -218,7 +219,7 @@ public class Benchmark {
 
     /** Test this (explicitly named) XML config. */
     public Builder config(String xml, String name) {
-      return config(SolverConfig.createFromXmlResource(xml), name);
+      return config(SolverFactories.config(xml), name);
     }
 
     /** Test this (named) solver config. */
@@ -266,12 +267,12 @@ public class Benchmark {
     }
 
     public Builder test(String xml) {
-      return test(SolverConfig.createFromXmlResource(xml), layout()._2, xml);
+      return test(SolverFactories.config(xml), layout()._2, xml);
     }
 
     /** Add a (named) test using this config and the current layout. */
     public Builder test(String xml, String testName) {
-      return test(SolverConfig.createFromXmlResource(xml), layout()._2, testName);
+      return test(SolverFactories.config(xml), layout()._2, testName);
     }
 
     public Builder test(SolverConfig config) {
@@ -279,7 +280,7 @@ public class Benchmark {
     }
 
     public Builder test(String xml, Layout layout) {
-      return test(SolverConfig.createFromXmlResource(xml), layout, defaultTestName());
+      return test(SolverFactories.config(xml), layout, defaultTestName());
     }
 
     public Builder test(SolverConfig config, Layout layout) {
@@ -344,12 +345,13 @@ public class Benchmark {
   }
 
   public static Result runTest(Test test) {
-    Solver<Layout> solver = SolverFactory.<Layout>create(test.config()).buildSolver();
+    Solver<Layout> solver = SolverFactories.solver(test.config());
+    final SolverTelemetry telemetry = SolverTelemetry.attach(solver, test.config());
     final long start = System.currentTimeMillis();
     Layout solved = solver.solve(test.problem());
     final long end = System.currentTimeMillis();
     final long time = end - start;
-    return new Result(test, time, solved);
+    return new Result(test, time, solved, telemetry);
   }
 
   public static Stream<Result> runTests(SolverConfig config, Layout ... layouts) {
@@ -412,12 +414,19 @@ public class Benchmark {
     public final long time;
     public final Layout solution;
     public final HardSoftLongScore score;
+    /** Per-phase stats, or null if not recorded. */
+    public final SolverTelemetry telemetry;
 
     public Result(Test test, long time, Layout solution) {
+      this(test, time, solution, null);
+    }
+
+    public Result(Test test, long time, Layout solution, SolverTelemetry telemetry) {
       this.test = test;
       this.time = time;
       this.solution = solution;
       this.score = solution.getScore();
+      this.telemetry = telemetry;
     }
 
     public Test test() {
@@ -436,6 +445,10 @@ public class Benchmark {
       return solution;
     }
 
+    public Optional<SolverTelemetry> telemetry() {
+      return Optional.ofNullable(telemetry);
+    }
+
     public static Collector<Result,StatsAccumulator,ResultStats> collector() {
       return Collector.of(StatsAccumulator::new, StatsAccumulator::accept, StatsAccumulator::combine,
           StatsAccumulator::finish);
@@ -22,7 +22,7 @@ public class SearchSpace {
   }
 
   public static BigInteger positions(final Layout layout, final Part p) {
-    return BigInteger.valueOf(layout.getPositions().size());
+    return BigInteger.valueOf(layout.getPositions().getSize());
   }
 
   public static BigInteger compute(final Layout layout) {
@@ -0,0 +1,85 @@
+package se.ltu.kitting.util;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.impl.phase.event.PhaseLifecycleListenerAdapter;
+import org.optaplanner.core.impl.solver.AbstractSolver;
+import org.optaplanner.core.impl.solver.scope.SolverScope;
+import se.ltu.kitting.model.Layout;
+
+/**
+ * Follows and stops a solve that may use several solvers, one after another
+ * or at the same time (such as the rounds of an adaptive resolution solve,
+ * or the starts of a multi-start solve).
+ * Each solver must be {@link #attach attached} before it starts solving.
+ * <p>
+ * The listener is notified of each solution that is better than all
+ * earlier ones (of any of the solvers). Terminating stops the solvers that
+ * are running, and any solver that starts later stops right away.
+ * Thread-safe.
+ */
+public final class SolveControl {
+
+  private final Consumer<Layout> listener;
+  private final Set<Solver<Layout>> solvers = ConcurrentHashMap.newKeySet();
+  private volatile boolean terminated = false;
+  /** Score of the last solution the listener was notified of. */
+  private HardSoftLongScore best;
+
+  public SolveControl(final Consumer<Layout> listener) {
+    this.listener = listener;
+  }
+
+  /** A control without a listener, which is only used to terminate. */
+  public SolveControl() {
+    this(solution -> {});
+  }
+
+  /** Follow this solver, which has not started solving yet. */
+  public void attach(final Solver<Layout> solver) {
+    solver.addEventListener(event -> report(event.getNewBestSolution()));
+    ((AbstractSolver<Layout>) solver).addPhaseLifecycleListener(new PhaseLifecycleListenerAdapter<>() {
+      @Override
+      public void solvingStarted(final SolverScope<Layout> solverScope) {
+        // A solver ignores termination before it has started, so check again.
+        if (terminated) {
+          solver.terminateEarly();
+        }
+      }
+
+      @Override
+      public void solvingEnded(final SolverScope<Layout> solverScope) {
+        solvers.remove(solver);
+      }
+    });
+    solvers.add(solver);
+  }
+
+  /**
+   * Notify the listener of this solution, if it is better than all earlier
+   * ones. Besides the best solutions of the attached solvers, this can be
+   * used for solutions found in other ways (such as in a cache).
+   */
+  public synchronized void report(final Layout solution) {
+    final HardSoftLongScore score = solution.getScore();
+    if (score == null || (best != null && score.compareTo(best) <= 0)) {
+      return;
+    }
+    best = score;
+    listener.accept(solution);
+  }
+
+  /** Stop all solvers, including those that have not started yet. */
+  public void terminate() {
+    terminated = true;
+    solvers.forEach(Solver::terminateEarly);
+  }
+
+  public boolean isTerminated() {
+    return terminated;
+  }
+
+}
@@ -0,0 +1,97 @@
+package se.ltu.kitting.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.SolverConfig;
+import se.ltu.kitting.model.Layout;
+
+/**
+ * Thread-safe registry of solver factories, so that each XML config is only
+ * parsed once. Factories are shared, but every call to {@link #solver}
+ * builds a fresh solver, so solvers are never shared between requests.
+ * <p>
+ * Configs returned by {@link #config(String)} are copies, so callers are
+ * free to modify them.
+ * <p>
+ * Factories for config objects (rather than XML resources) are kept for
+ * the {@link #configCapacity} most recently used configs, so callers that
+ * solve many configs once should build their solvers themselves.
+ */
+public final class SolverFactories {
+
+  private static final Map<String,SolverConfig> configs = new ConcurrentHashMap<>();
+  private static final Map<String,SolverFactory<Layout>> byXml = new ConcurrentHashMap<>();
+
+  /**
+   * Maximum number of config objects to keep factories for
+   * (system property {@code kitting.solverFactories}, default 32).
+   */
+  public static final int configCapacity = Integer.getInteger("kitting.solverFactories", 32);
+
+  // SolverConfig does not override equals, so this is keyed by identity.
+  // Must be bounded: each factory references its config, so weak keys
+  // would never be released.
+  private static final Map<SolverConfig,SolverFactory<Layout>> byConfig =
+    Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<SolverConfig,SolverFactory<Layout>> eldest) {
+        return size() > configCapacity;
+      }
+    });
+
+  private SolverFactories() {}
+
+  /** Parse these XML configs now rather than on first use. */
+  public static void preload(final String ... xmlResources) {
+    for (final String xml : xmlResources) {
+      factory(xml);
+    }
+  }
+
+  /** A copy of the parsed config. */
+  public static SolverConfig config(final String xmlResource) {
+    return parsed(xmlResource).copyConfig();
+  }
+
+  private static SolverConfig parsed(final String xmlResource) {
+    return configs.computeIfAbsent(xmlResource, SolverConfig::createFromXmlResource);
+  }
+
+  /** The (shared) factory for this XML config. */
+  public static SolverFactory<Layout> factory(final String xmlResource) {
+    return byXml.computeIfAbsent(xmlResource, xml -> SolverFactory.create(parsed(xml)));
+  }
+
+  /**
+   * The (shared) factory for this config.
+   * The config must not be modified after it has been used here.
+   */
+  public static SolverFactory<Layout> factory(final SolverConfig config) {
+    return byConfig.computeIfAbsent(config, SolverFactory::create);
+  }
+
+  /** A new solver for this XML config. */
+  public static Solver<Layout> solver(final String xmlResource) {
+    return factory(xmlResource).buildSolver();
+  }
+
+  /**
+   * A new solver for this config.
+   * The config must not be modified after it has been used here.
+   */
+  public static Solver<Layout> solver(final SolverConfig config) {
+    return factory(config).buildSolver();
+  }
+
+  /** Forget all factories. (Mostly useful for testing.) */
+  public static void clear() {
+    configs.clear();
+    byXml.clear();
+    byConfig.clear();
+  }
+
+}
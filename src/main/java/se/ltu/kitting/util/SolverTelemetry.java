@@ -0,0 +1,266 @@
+package se.ltu.kitting.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.optaplanner.core.api.score.Score;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.config.constructionheuristic.ConstructionHeuristicPhaseConfig;
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.phase.PhaseConfig;
+import org.optaplanner.core.config.phase.custom.CustomPhaseConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.impl.constructionheuristic.scope.ConstructionHeuristicStepScope;
+import org.optaplanner.core.impl.localsearch.scope.LocalSearchStepScope;
+import org.optaplanner.core.impl.phase.event.PhaseLifecycleListenerAdapter;
+import org.optaplanner.core.impl.phase.scope.AbstractPhaseScope;
+import org.optaplanner.core.impl.phase.scope.AbstractStepScope;
+import org.optaplanner.core.impl.solver.AbstractSolver;
+import org.optaplanner.core.impl.solver.scope.SolverScope;
+import se.ltu.kitting.model.Layout;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Records where the time goes when solving: for each phase, its duration,
+ * number of steps, number of moves evaluated, number of score calculations
+ * (and their speed), and best score at the end of the phase. Also records
+ * the time until the first feasible solution was found.
+ * <p>
+ * {@link #attach(Solver, SolverConfig) Attach} a new instance to a solver
+ * before each solve. When one layout is solved by a sequence of solvers
+ * (see {@link se.ltu.kitting.AdaptiveResolutionSolver}), the same instance
+ * can be {@link #attachTo(Solver, SolverConfig) attached to} each of them
+ * in turn; the phases are then numbered consecutively, and the time to
+ * feasible is counted from the start of the first solver.
+ * <p>
+ * The results can be {@link #publish(MeterRegistry) published} as
+ * Micrometer metrics, tagged with the phase index and name:
+ * <ul>
+ * <li>{@code kitting.solver.phase.duration} (timer)</li>
+ * <li>{@code kitting.solver.phase.moves} (summary, moves evaluated)</li>
+ * <li>{@code kitting.solver.phase.scoreCalculations} (summary)</li>
+ * <li>{@code kitting.solver.phase.scoreCalculationSpeed} (summary, per second)</li>
+ * <li>{@code kitting.solver.phase.hardPenalty} and {@code softPenalty}
+ *     (summaries, the negated best score at the end of the phase)</li>
+ * <li>{@code kitting.solver.timeToFeasible} (timer), or
+ *     {@code kitting.solver.infeasible} (counter) if no feasible solution
+ *     was found</li>
+ * </ul>
+ */
+public class SolverTelemetry extends PhaseLifecycleListenerAdapter<Layout> {
+
+  private final List<String> phaseNames = new ArrayList<>();
+  private final List<PhaseStats> phases = new ArrayList<>();
+  private long start = -1;
+  private long timeToFeasible = -1;
+  // Of the current phase.
+  private long steps;
+  private long moves;
+  private long startingCalculations;
+
+  /**
+   * Starts recording the phases of the solver, which must have been built
+   * from this config (which is only used to name the phases).
+   */
+  public static SolverTelemetry attach(final Solver<Layout> solver, final SolverConfig config) {
+    return new SolverTelemetry().attachTo(solver, config);
+  }
+
+  /**
+   * Also records the phases of this solver, which must run after the
+   * solvers this has already been attached to.
+   * @return this
+   */
+  public SolverTelemetry attachTo(final Solver<Layout> solver, final SolverConfig config) {
+    synchronized (this) {
+      phaseNames.addAll(phaseNames(config));
+    }
+    ((AbstractSolver<Layout>) solver).addPhaseLifecycleListener(this);
+    return this;
+  }
+
+  /**
+   * Describes each phase of the config, such as
+   * {@code ResolutionChange(resolution=10)} or
+   * {@code LocalSearch(LATE_ACCEPTANCE)}.
+   */
+  public static List<String> phaseNames(final SolverConfig config) {
+    final List<String> names = new ArrayList<>();
+    final List<PhaseConfig> phases = config.getPhaseConfigList();
+    if (phases != null) {
+      for (final PhaseConfig phase : phases) {
+        names.add(phaseName(phase));
+      }
+    }
+    return names;
+  }
+
+  private static String phaseName(final PhaseConfig phase) {
+    if (phase instanceof CustomPhaseConfig) {
+      final CustomPhaseConfig custom = (CustomPhaseConfig) phase;
+      final String commands = custom.getCustomPhaseCommandClassList() == null ? "Custom"
+        : custom.getCustomPhaseCommandClassList().stream().map(Class::getSimpleName).collect(joining("+"));
+      final Map<String,String> properties = custom.getCustomProperties();
+      if (properties == null || properties.isEmpty()) {
+        return commands;
+      }
+      return commands + properties.entrySet().stream()
+        .map(e -> e.getKey() + "=" + e.getValue())
+        .sorted()
+        .collect(joining(",", "(", ")"));
+    }
+    if (phase instanceof LocalSearchPhaseConfig) {
+      final var type = ((LocalSearchPhaseConfig) phase).getLocalSearchType();
+      return type == null ? "LocalSearch" : "LocalSearch(" + type + ")";
+    }
+    if (phase instanceof ConstructionHeuristicPhaseConfig) {
+      final var type = ((ConstructionHeuristicPhaseConfig) phase).getConstructionHeuristicType();
+      return type == null ? "ConstructionHeuristic" : "ConstructionHeuristic(" + type + ")";
+    }
+    return phase.getClass().getSimpleName().replace("PhaseConfig", "");
+  }
+
+  @Override
+  public void phaseStarted(final AbstractPhaseScope<Layout> phaseScope) {
+    steps = 0;
+    moves = 0;
+    startingCalculations = phaseScope.getSolverScope().getScoreCalculationCount();
+    if (start < 0) {
+      start = phaseScope.getSolverScope().getStartingSystemTimeMillis();
+    }
+  }
+
+  @Override
+  public void stepEnded(final AbstractStepScope<Layout> stepScope) {
+    steps++;
+    if (stepScope instanceof LocalSearchStepScope) {
+      moves += count(((LocalSearchStepScope<Layout>) stepScope).getSelectedMoveCount());
+    } else if (stepScope instanceof ConstructionHeuristicStepScope) {
+      moves += count(((ConstructionHeuristicStepScope<Layout>) stepScope).getSelectedMoveCount());
+    }
+    checkFeasible(stepScope.getPhaseScope().getSolverScope());
+  }
+
+  @Override
+  public void phaseEnded(final AbstractPhaseScope<Layout> phaseScope) {
+    final Score<?> best = phaseScope.getBestScore();
+    // The phase end time and count are only set after the listeners are notified.
+    final long time = phaseScope.calculatePhaseTimeMillisSpentUpToNow();
+    final long calculations = phaseScope.getSolverScope().getScoreCalculationCount() - startingCalculations;
+    final long speed = calculations * 1000L / Math.max(time, 1);
+    synchronized (this) {
+      final int index = phases.size();
+      final String name = index < phaseNames.size() ? phaseNames.get(index) : "Phase " + index;
+      phases.add(new PhaseStats(index, name, time, steps, moves, calculations, speed,
+            best instanceof HardSoftLongScore ? (HardSoftLongScore) best : null));
+    }
+    checkFeasible(phaseScope.getSolverScope());
+  }
+
+  private void checkFeasible(final SolverScope<Layout> solverScope) {
+    if (timeToFeasible >= 0) {
+      return;
+    }
+    final Score<?> best = solverScope.getBestScore();
+    if (best != null && best.isFeasible()) {
+      final Long found = solverScope.getBestSolutionTimeMillis();
+      timeToFeasible = (found == null ? System.currentTimeMillis() : found) - start;
+    }
+  }
+
+  private static long count(final Long count) {
+    return count == null ? 0 : count;
+  }
+
+  /** The phases that have ended, in order. */
+  public synchronized List<PhaseStats> phases() {
+    return List.copyOf(phases);
+  }
+
+  /** Time from the start of solving until the first feasible best solution. */
+  public synchronized OptionalLong timeToFeasibleMillis() {
+    return timeToFeasible < 0 ? OptionalLong.empty() : OptionalLong.of(timeToFeasible);
+  }
+
+  /** Records the phases (and the time to feasible) in the registry. */
+  public void publish(final MeterRegistry registry) {
+    for (final PhaseStats phase : phases()) {
+      final String[] tags = {"phase", String.valueOf(phase.index), "name", phase.name};
+      Timer.builder("kitting.solver.phase.duration").tags(tags)
+        .register(registry).record(phase.durationMillis, TimeUnit.MILLISECONDS);
+      summary(registry, "kitting.solver.phase.moves", tags, phase.moves);
+      summary(registry, "kitting.solver.phase.scoreCalculations", tags, phase.scoreCalculations);
+      summary(registry, "kitting.solver.phase.scoreCalculationSpeed", tags, phase.scoreCalculationSpeed);
+      if (phase.bestScore != null) {
+        summary(registry, "kitting.solver.phase.hardPenalty", tags, -phase.bestScore.getHardScore());
+        summary(registry, "kitting.solver.phase.softPenalty", tags, -phase.bestScore.getSoftScore());
+      }
+    }
+    final OptionalLong feasible = timeToFeasibleMillis();
+    if (feasible.isPresent()) {
+      Timer.builder("kitting.solver.timeToFeasible")
+        .register(registry).record(feasible.getAsLong(), TimeUnit.MILLISECONDS);
+    } else {
+      registry.counter("kitting.solver.infeasible").increment();
+    }
+  }
+
+  private static void summary(final MeterRegistry registry, final String name, final String[] tags, final double value) {
+    DistributionSummary.builder(name).tags(tags).register(registry).record(value);
+  }
+
+  /** One line per phase. */
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder("Solver telemetry (time to feasible: ");
+    final OptionalLong feasible = timeToFeasibleMillis();
+    sb.append(feasible.isPresent() ? feasible.getAsLong() + " ms" : "never").append(")");
+    for (final PhaseStats phase : phases()) {
+      sb.append(System.lineSeparator()).append("  ").append(phase);
+    }
+    return sb.toString();
+  }
+
+  /** What happened during a single phase. Immutable. */
+  public static final class PhaseStats {
+
+    public final int index;
+    public final String name;
+    public final long durationMillis;
+    public final long steps;
+    /** Moves evaluated (only counted for local search and construction heuristics). */
+    public final long moves;
+    public final long scoreCalculations;
+    /** Score calculations per second. */
+    public final long scoreCalculationSpeed;
+    /** Best score at the end of the phase (null if unknown). */
+    public final HardSoftLongScore bestScore;
+
+    public PhaseStats(int index, String name, long durationMillis, long steps, long moves,
+        long scoreCalculations, long scoreCalculationSpeed, HardSoftLongScore bestScore) {
+      this.index = index;
+      this.name = name;
+      this.durationMillis = durationMillis;
+      this.steps = steps;
+      this.moves = moves;
+      this.scoreCalculations = scoreCalculations;
+      this.scoreCalculationSpeed = scoreCalculationSpeed;
+      this.bestScore = bestScore;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d %s: %d ms, %d steps, %d moves, %d score calculations (%d/s), best %s",
+          index, name, durationMillis, steps, moves, scoreCalculations, scoreCalculationSpeed, bestScore);
+    }
+
+  }
+
+}
@@ -166,8 +166,9 @@ public class Util {
     return solver(xmlResource).solve(problem);
   }
 
+  /** A new solver. The XML is only parsed once (see {@link SolverFactories}). */
   public static Solver<Layout> solver(String xmlResource) {
-    return solver(SolverConfig.createFromXmlResource(xmlResource));
+    return SolverFactories.solver(xmlResource);
   }
 
   public static Solver<Layout> solver(SolverConfig cfg) {
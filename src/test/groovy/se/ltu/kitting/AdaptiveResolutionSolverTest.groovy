@@ -0,0 +1,95 @@
+package se.ltu.kitting
+
+import spock.lang.*;
+import org.optaplanner.core.config.solver.SolverConfig;
+import se.ltu.kitting.model.*;
+import se.ltu.kitting.test.LayoutExamples;
+import se.ltu.kitting.util.SolverFactories;
+import se.ltu.kitting.util.SolverTelemetry;
+import se.ltu.kitting.util.Util;
+
+class AdaptiveResolutionSolverTest extends Specification {
+
+  def config() {
+    def config = SolverConfig.createFromXmlResource("unified.xml")
+    config.getTerminationConfig().setSecondsSpentLimit(3)
+    return config
+  }
+
+  @Unroll
+  def "adaptive solving should return a feasible layout for #name"() {
+    given:
+      def solver = new AdaptiveResolutionSolver(config())
+    when:
+      def solved = solver.solve(layout)
+    then:
+      Util.allVariablesInitialized(solved)
+      solved.getScore().isFeasible()
+      !solved.is(layout)
+    where:
+      [name, layout] << LayoutExamples.layouts(3, 7, 11).collect { [it._1, it._2] }
+  }
+
+  def "the original layout should not be modified"() {
+    given:
+      def layout = LayoutExamples.layouts(3).get(0)._2
+    when:
+      new AdaptiveResolutionSolver(config()).solve(layout)
+    then:
+      layout.getParts().every { it.getPosition() == null }
+  }
+
+  def "an infeasible layout should get the whole time limit, but no more"() {
+    given:
+      def config = config()
+      config.getTerminationConfig().setSecondsSpentLimit(2)
+      def layout = LayoutExamples.layouts(5).get(0)._2  // Hard, no free space.
+    when:
+      def start = System.currentTimeMillis()
+      def solved = new AdaptiveResolutionSolver(config).solve(layout)
+      def time = System.currentTimeMillis() - start
+    then:
+      Util.allVariablesInitialized(solved)
+      time >= 2000
+      time < 3000
+  }
+
+  def "a round that starts after the time is up should stop right away"() {
+    given:
+      def config = config()
+      config.getTerminationConfig().setSecondsSpentLimit(null)
+      config.getTerminationConfig().setMillisecondsSpentLimit(1)
+      def solver = new AdaptiveResolutionSolver(config)
+      def layout = LayoutExamples.layouts(5).get(0)._2  // Hard, no free space.
+      solver.solve(layout)  // Warm up.
+    when:
+      def start = System.currentTimeMillis()
+      solver.solve(layout)
+      def time = System.currentTimeMillis() - start
+    then:
+      time < AdaptiveResolutionSolver.defaultUnimprovedMillis
+  }
+
+  def "the phases of every round should be recorded"() {
+    given:
+      def layout = LayoutExamples.layouts(11).get(0)._2
+      def telemetry = new SolverTelemetry()
+    when:
+      new AdaptiveResolutionSolver(config()).solve(layout, telemetry)
+    then:
+      !telemetry.phases().isEmpty()
+      telemetry.phases()*.index == (0..<telemetry.phases().size()).toList()
+      telemetry.timeToFeasibleMillis().isPresent()
+  }
+
+  def "configs without local search should not be supported"() {
+    expect:
+      AdaptiveResolutionSolver.supports(SolverFactories.config("unified.xml"))
+      !AdaptiveResolutionSolver.supports(SolverFactories.config("firstFit.xml"))
+    when:
+      new AdaptiveResolutionSolver(SolverFactories.config("firstFit.xml"))
+    then:
+      thrown(IllegalArgumentException)
+  }
+
+}
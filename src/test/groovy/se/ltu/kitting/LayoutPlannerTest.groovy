@@ -0,0 +1,48 @@
+package se.ltu.kitting
+
+import spock.lang.*;
+import com.google.gson.Gson;
+import se.ltu.kitting.api.json.BatchPlanningResponse;
+import se.ltu.kitting.api.json.JsonIO;
+
+class LayoutPlannerTest extends Specification {
+
+  def request(String kitId) {
+    return getClass().getResource("/demoRequest2.json").text.replace('"Demo 2"', '"' + kitId + '"')
+  }
+
+  def batch(List<String> kitIds) {
+    return '{"requests": [' + kitIds.collect { request(it) }.join(",") + ']}'
+  }
+
+  def "batch responses should be in the same order as the requests"() {
+    given:
+      def kitIds = (1..5).collect { "kit " + it }
+    when:
+      def responses = LayoutPlanner.requestLayouts(JsonIO.batchRequest(batch(kitIds)))
+    then:
+      responses*._1*.request()*.kit()*.kitId() == kitIds
+      responses.every { it._1.hasFeasibleSolution() }
+      responses.every { it._2 >= 0 }
+  }
+
+  def "batch JSON response should have one timed response per request"() {
+    given:
+      def kitIds = ["a", "b", "c"]
+    when:
+      def json = LayoutPlanner.jsonBatchResponse(batch(kitIds))
+      def batch = new Gson().fromJson(json, BatchPlanningResponse)
+    then:
+      batch.responses*.index == [0, 1, 2]
+      batch.responses*.response*.kit*.kitId == kitIds
+      batch.responses.every { it.timeMillis <= batch.totalMillis }
+  }
+
+  def "a batch without requests should be rejected"() {
+    when:
+      JsonIO.batchRequest("{}")
+    then:
+      thrown(IllegalArgumentException)
+  }
+
+}
@@ -0,0 +1,65 @@
+package se.ltu.kitting
+
+import spock.lang.*;
+import org.optaplanner.core.config.phase.custom.CustomPhaseConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import se.ltu.kitting.algo.BottomLeftInit;
+import se.ltu.kitting.model.*;
+import se.ltu.kitting.test.LayoutExamples;
+import se.ltu.kitting.util.Util;
+
+class MultiStartSolverTest extends Specification {
+
+  def config() {
+    def config = SolverConfig.createFromXmlResource("unified.xml")
+    config.getTerminationConfig().setSecondsSpentLimit(3)
+    return config
+  }
+
+  @Unroll
+  def "multi-start solving should return a feasible layout for #name"() {
+    given:
+      def solver = new MultiStartSolver(config(), 3)
+    when:
+      def solved = solver.solve(layout)
+    then:
+      Util.allVariablesInitialized(solved)
+      solved.getScore().isFeasible()
+      !solved.is(layout)
+    where:
+      [name, layout] << LayoutExamples.layouts(3, 11).collect { [it._1, it._2] }
+  }
+
+  def "the original layout should not be modified"() {
+    given:
+      def layout = LayoutExamples.layouts(3).get(0)._2
+    when:
+      new MultiStartSolver(config(), 2).solve(layout)
+    then:
+      layout.getParts().every { it.getPosition() == null }
+  }
+
+  def "only the first start should use the original config"() {
+    given:
+      def solver = new MultiStartSolver(config(), 3)
+      def orders = { SolverConfig cfg ->
+        cfg.getPhaseConfigList()
+          .findAll { it instanceof CustomPhaseConfig && BottomLeftInit in it.getCustomPhaseCommandClassList() }
+          .collect { it.getCustomProperties()?.get("order") }
+      }
+    expect:
+      solver.configForStart(0).getRandomSeed() == config().getRandomSeed()
+      orders(solver.configForStart(0)) == orders(config())
+      solver.configForStart(1).getRandomSeed() != solver.configForStart(2).getRandomSeed()
+      orders(solver.configForStart(1)) == ["minArea"]
+      orders(solver.configForStart(2)) == ["volume"]
+  }
+
+  def "at least one start is required"() {
+    when:
+      new MultiStartSolver(config(), 0)
+    then:
+      thrown(IllegalArgumentException)
+  }
+
+}
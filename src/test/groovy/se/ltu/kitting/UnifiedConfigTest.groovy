@@ -0,0 +1,32 @@
+package se.ltu.kitting
+
+import spock.lang.*;
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+
+// OptaPlanner configs cannot include each other, so the copies are compared.
+class UnifiedConfigTest extends Specification {
+
+  // The config without comments, whitespace and the score configuration.
+  def phases(String xml) {
+    return getClass().getResource("/" + xml).text
+      .replaceAll(/(?s)<!--.*?-->/, "")
+      .replaceAll(/(?s)<scoreDirectorFactory>.*?<\/scoreDirectorFactory>/, "")
+      .replaceAll(/\s+/, "")
+  }
+
+  def "the constraint streams config should only differ in the score configuration"() {
+    expect:
+      phases("unifiedConstraintStreams.xml") == phases("unified.xml")
+  }
+
+  def "all local search phases should use the same moves"() {
+    given:
+      def selectors = (phases("unified.xml") =~ /<unionMoveSelector>.*?<\/unionMoveSelector>/).collect()
+    expect:
+      selectors.size() == SolverConfig.createFromXmlResource("unified.xml")
+        .getPhaseConfigList().count { it instanceof LocalSearchPhaseConfig }
+      selectors.toSet().size() == 1
+  }
+
+}
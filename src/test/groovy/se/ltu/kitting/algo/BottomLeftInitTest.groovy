@@ -0,0 +1,61 @@
+package se.ltu.kitting.algo
+
+import spock.lang.*;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.phase.custom.CustomPhaseConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import se.ltu.kitting.model.*;
+import se.ltu.kitting.score.HardScore;
+import se.ltu.kitting.test.LayoutExamples;
+import se.ltu.kitting.test.LayoutBuilder;
+
+class BottomLeftInitTest extends Specification {
+
+  def construct(Layout layout, String order = "volume") {
+    def config = SolverConfig.createFromXmlResource("unified.xml")
+    def hintInit = new CustomPhaseConfig().withCustomPhaseCommandClassList([HintInit])
+    def bottomLeft = new CustomPhaseConfig().withCustomPhaseCommandClassList([BottomLeftInit])
+    bottomLeft.setCustomProperties([order: order])
+    config.setPhaseConfigList([hintInit, bottomLeft])
+    return SolverFactory.<Layout>create(config).buildSolver().solve(Layout.copyOf(layout))
+  }
+
+  @Unroll
+  def "construction should initialize all parts of #name without overlap"() {
+    when:
+      def solved = construct(layout)
+    then:
+      solved.getParts().every { it.fullyInitialized() }
+      HardScore.countOverlappingParts(solved) == 0
+    where:
+      [name, layout] << LayoutExamples.layouts(1, 3, 6, 7, 11, 12).collect { [it._1, it._2] }
+  }
+
+  @Unroll
+  def "construction should find a feasible layout for #name (#order order)"() {
+    expect:
+      construct(layout, order).getScore().isFeasible()
+    where:
+      [name, layout, order] << [LayoutExamples.layouts(3, 11), ["volume", "minArea"]].combinations()
+        .collect { example, order -> [example._1, example._2, order] }
+  }
+
+  def "hinted parts should stay where they are and other parts should avoid them"() {
+    given:
+      def layout = LayoutBuilder.builder()
+        .surface(100, 100, 100)
+        .part().dimensions(40, 40, 10).allowSides(Side.bottom).mandatory(Dimensions.of(20, 20, -1)).add()
+        .part().dimensions(40, 40, 10).allowSides(Side.bottom).add()
+        .build()
+    when:
+      def solved = construct(layout)
+      def hinted = solved.getParts().find { it.hasHint() }
+      def other = solved.getParts().find { !it.hasHint() }
+    then:
+      hinted.currentCenter().x == 20
+      hinted.currentCenter().y == 20
+      other.getPosition() == Dimensions.of(40, 0, -1)
+      solved.getScore().isFeasible()
+  }
+
+}
@@ -0,0 +1,82 @@
+package se.ltu.kitting.algo
+
+import spock.lang.*;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import se.ltu.kitting.algo.move.PlacementMove;
+import se.ltu.kitting.model.*;
+import se.ltu.kitting.test.LayoutBuilder;
+
+class CornerPointsTest extends Specification {
+
+  def layout(int margin = 0) {
+    def layout = LayoutBuilder.builder()
+      .surface(100, 100, 100)
+      .part().dimensions(40, 30, 10).allowSides(Side.bottom).add()
+      .part().dimensions(20, 20, 10).allowSides(Side.bottom).add()
+      .build()
+    layout.getParts().each {
+      it.setSideDown(Side.bottom)
+      it.setRotation(Rotation.ZERO)
+      it.setMargin(margin)
+    }
+    layout.getParts()[0].setPosition(Dimensions.of(10, 10, -1))
+    layout.getParts()[1].setPosition(Dimensions.of(0, 0, -1))
+    return layout
+  }
+
+  def "candidates should include the corners and the positions next to other parts"() {
+    given:
+      def layout = layout(margin)
+      def part = layout.getParts()[1]
+    when:
+      def candidates = CornerPoints.candidates(layout, part)
+    then:
+      candidates.containsAll(expected.collect { x, y -> Dimensions.of(x, y, -1) })
+      candidates.every { it.x >= 0 && it.x <= 80 && it.y >= 0 && it.y <= 80 }
+      candidates.size() == candidates.toSet().size()
+    where:
+      margin | expected
+      0      | [[0, 0], [80, 0], [0, 80], [80, 80], [50, 10], [50, 0], [10, 40], [0, 40]]
+      5      | [[0, 0], [80, 0], [0, 80], [80, 80], [55, 10], [55, 0], [10, 45], [0, 45]]
+  }
+
+  def "candidates should be empty if the part fits on no surface"() {
+    given:
+      def layout = layout()
+      def part = layout.getParts()[1]
+    expect:
+      CornerPoints.candidates(layout, part, 120, 20, 10).isEmpty()
+      CornerPoints.random(layout, part, 120, 20, 10, new Random(1)) == null
+  }
+
+  def "random candidates should be candidates"() {
+    given:
+      def layout = layout()
+      def part = layout.getParts()[1]
+      def candidates = CornerPoints.candidates(layout, part)
+      def random = new Random(1)
+    expect:
+      (1..100).collect { CornerPoints.random(layout, part, 20, 20, 10, random) }
+        .every { it == null || candidates.contains(it) }
+  }
+
+  def "a placement move should be undone by its undo move"() {
+    given:
+      def layout = layout()
+      def part = layout.getParts()[1]
+      def director = Stub(ScoreDirector) { getWorkingSolution() >> layout }
+      def move = new PlacementMove(part, Side.bottom, Rotation.Z90, Dimensions.of(50, 10, -1))
+    when:
+      def undo = move.doMove(director)
+    then:
+      part.getPosition() == Dimensions.of(50, 10, -1)
+      part.getRotation() == Rotation.Z90
+      !move.isMoveDoable(director)
+    when:
+      undo.doMove(director)
+    then:
+      part.getPosition() == Dimensions.of(0, 0, -1)
+      part.getRotation() == Rotation.ZERO
+  }
+
+}
@@ -0,0 +1,62 @@
+package se.ltu.kitting.algo
+
+import spock.lang.*;
+import se.ltu.kitting.model.*;
+import se.ltu.kitting.test.LayoutExamples;
+
+import static se.ltu.kitting.model.Dimensions.dimensions;
+
+class ResolutionScheduleTest extends Specification {
+
+  def demoWagon() {
+    Wagon.of([
+      Surface.of(dimensions(1000,600,500), dimensions(0,0,100)),
+      Surface.of(dimensions(1000,600,600), dimensions(0,0,600)),
+      Surface.of(dimensions(1000,600,0), dimensions(0,0,1200)),
+    ])
+  }
+
+  def "the schedule should depend on the surface area and number of parts"() {
+    expect:
+      ResolutionSchedule.forWagon(demoWagon(), 10, 16, 4).steps() == [106, 27, 7, 2, 1]
+      ResolutionSchedule.forWagon(demoWagon(), 40, 16, 4).steps() == [53, 13, 3, 1]
+  }
+
+  @Unroll
+  def "the schedule for #name should be strictly decreasing and end with 1"() {
+    given:
+      def steps = ResolutionSchedule.forLayout(layout).steps()
+    expect:
+      steps.last() == 1
+      (1..<steps.size()).every { steps[it] < steps[it-1] }
+    where:
+      [name, layout] << LayoutExamples.getAll().collect { [it._1, it._2] }
+  }
+
+  def "the coarsest step size should be at most a quarter of the smallest side"() {
+    given:
+      def wagon = Wagon.of([Surface.of(dimensions(1000,40,10), dimensions(0,0,0))])
+    expect:
+      ResolutionSchedule.forWagon(wagon, 1, 1, 4).coarsest() == 10
+  }
+
+  def "the step after the last one should be 1"() {
+    given:
+      def schedule = ResolutionSchedule.of([20, 5, 1])
+    expect:
+      schedule.next(20) == 5
+      schedule.next(5) == 1
+      schedule.next(1) == 1
+      schedule.next(7) == 1
+  }
+
+  def "schedules that do not end with 1 or are not decreasing should be rejected"() {
+    when:
+      ResolutionSchedule.of(steps)
+    then:
+      thrown(IllegalArgumentException)
+    where:
+      steps << [[], [10, 5], [5, 10, 1], [5, 5, 1]]
+  }
+
+}
@@ -0,0 +1,144 @@
+package se.ltu.kitting.algo.move
+
+import spock.lang.*;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.SolverConfig;
+import se.ltu.kitting.model.*;
+import se.ltu.kitting.test.LayoutBuilder;
+
+class PartMovesTest extends Specification {
+
+  // Places parts of the given sizes at the given positions on a 100x100 surface.
+  def layout(List sizes, List positions, int margin = 0) {
+    def builder = LayoutBuilder.builder().surface(100, 100, 100)
+    sizes.each { w, d -> builder = builder.part().dimensions(w, d, 10).allowSides(Side.bottom).add() }
+    def layout = builder.build()
+    layout.getParts().eachWithIndex { part, i ->
+      part.setSideDown(Side.bottom)
+      part.setRotation(Rotation.ZERO)
+      part.setMargin(margin)
+      part.setPosition(Dimensions.of(positions[i][0], positions[i][1], -1))
+    }
+    return layout
+  }
+
+  def director(Layout layout) {
+    return Stub(ScoreDirector) { getWorkingSolution() >> layout }
+  }
+
+  def "sliding should stop at the nearest part in the way, keeping the margin"() {
+    given:
+      def layout = layout([[10, 10], [10, 10], [10, 10], [10, 10]], [[50, 50], [20, 55], [35, 45], [45, 20]], margin)
+      def part = layout.getParts()[0]
+    expect:
+      SlideMoveFactory.slideLeft(layout, part) == left
+      SlideMoveFactory.slideBack(layout, part) == back
+    where:
+      margin | left | back
+      0      | 45   | 30
+      2      | 47   | 32
+  }
+
+  def "sliding should stop at the edge of the surface if nothing is in the way"() {
+    given:
+      def layout = layout([[10, 10], [10, 10]], [[50, 50], [20, 80]])
+      def moves = new SlideMoveFactory().moves(layout, layout.getParts()[0])
+    expect:
+      moves*.position() as Set == [Dimensions.of(0, 50, -1), Dimensions.of(50, 0, -1)] as Set
+  }
+
+  def "rotating should keep the center"() {
+    given:
+      def layout = layout([[40, 20]], [[30, 40]])
+      def part = layout.getParts()[0]
+      def center = [part.centerX(), part.centerY()]
+      def move = new RotateMoveFactory().moves(layout, part)[0]
+    when:
+      move.doMove(director(layout))
+    then:
+      part.getRotation() == Rotation.Z90
+      part.width() == 20
+      part.depth() == 40
+      [part.centerX(), part.centerY()] == center
+  }
+
+  def "rotating near an edge should keep the part inside the surface"() {
+    given:
+      def layout = layout([[40, 20]], [[60, 90]])
+      def move = new RotateMoveFactory().moves(layout, layout.getParts()[0])[0]
+    expect:
+      move.position() == Dimensions.of(70, 60, -1)
+  }
+
+  def "swapping should trade centers and keep rotations"() {
+    given:
+      def layout = layout([[40, 20], [10, 10]], [[0, 0], [60, 60]])
+      def (a, b) = layout.getParts()
+      b.setRotation(Rotation.Z90)
+      def move = SwapPositionMoveFactory.swap(layout, a, b)
+    when:
+      def undo = move.doMove(director(layout))
+    then:
+      [a.centerX(), a.centerY()] == [65, 65]
+      [b.centerX(), b.centerY()] == [20, 10]
+      a.getRotation() == Rotation.ZERO
+      b.getRotation() == Rotation.Z90
+    when:
+      undo.doMove(director(layout))
+    then:
+      a.getPosition() == Dimensions.of(0, 0, -1)
+      b.getPosition() == Dimensions.of(60, 60, -1)
+  }
+
+  def "moves should notify the score director about exactly the changed variables"() {
+    given:
+      def layout = layout([[40, 20]], [[30, 40]])
+      def part = layout.getParts()[0]
+      def director = Mock(ScoreDirector)
+      def move = new RotateMoveFactory().moves(layout, part)[0]
+    when:
+      move.doMove(director)
+    then:
+      1 * director.beforeVariableChanged(part, "rotation")
+      1 * director.afterVariableChanged(part, "rotation")
+      1 * director.beforeVariableChanged(part, "position")
+      1 * director.afterVariableChanged(part, "position")
+      0 * director.beforeVariableChanged(part, "sideDown")
+  }
+
+  def "pinned parts should get no moves"() {
+    given:
+      def layout = layout([[40, 20], [10, 10]], [[30, 40], [60, 60]])
+      def (pinned, other) = layout.getParts()
+      pinned.setHint(LayoutHint.mandatory(Dimensions.of(50, 50, 0), -1, Rotation.ZERO).withSide(Side.bottom))
+      def director = director(layout)
+    expect:
+      pinned.isPinned()
+      [new RotateMoveFactory(), new SlideMoveFactory(), new CornerMoveFactory()].every { factory ->
+        factory.createOriginalMoveIterator(director).collect { it.part() } as Set == [other] as Set
+      }
+      SwapPositionMoveFactory.swap(layout, pinned, other) == null
+  }
+
+  def "the solver should never move a pinned part"() {
+    given:
+      def layout = LayoutBuilder.builder()
+        .surface(100, 100, 100)
+        .part().dimensions(40, 20, 10).allowSides(Side.bottom).add()
+        .part().dimensions(40, 40, 10).allowSides(Side.bottom).add()
+        .part().dimensions(40, 40, 10).allowSides(Side.bottom).add()
+        .build()
+      def hint = LayoutHint.mandatory(Dimensions.of(50, 50, 0), -1, Rotation.ZERO).withSide(Side.bottom)
+      layout.getParts()[0].setHint(hint)
+    when:
+      def solved = SolverFactory.<Layout>create(SolverConfig.createFromXmlResource("unified.xml"))
+        .buildSolver().solve(layout)
+      def pinned = solved.getParts()[0]
+    then:
+      pinned.isPinned()
+      pinned.getPosition() == Dimensions.of(30, 40, -1)
+      solved.getScore().isFeasible()
+  }
+
+}
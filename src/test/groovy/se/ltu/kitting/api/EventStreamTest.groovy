@@ -0,0 +1,95 @@
+package se.ltu.kitting.api
+
+import spock.lang.*;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+class EventStreamTest extends Specification {
+
+  // Records the data of the sent events, and whether the stream completed.
+  class RecordingEmitter extends SseEmitter {
+    List sent = []
+    boolean completed = false
+    boolean broken = false
+    @Override
+    void send(SseEmitter.SseEventBuilder builder) throws IOException {
+      if (broken) {
+        throw new IOException("Gone")
+      }
+      sent << builder.build().find { it.mediaType == MediaType.APPLICATION_JSON }.data
+    }
+    @Override
+    void complete() {
+      completed = true
+    }
+    @Override
+    void completeWithError(Throwable e) {
+      completed = true
+    }
+  }
+
+  // Runs the queued tasks when told to.
+  def tasks = []
+  def sender = { tasks << it } as java.util.concurrent.Executor
+
+  def runAll() {
+    while (tasks) {
+      tasks.remove(0).run()
+    }
+  }
+
+  def "superseded events should be skipped, keeping the order of the rest"() {
+    given:
+      def emitter = new RecordingEmitter()
+      def events = new EventStream(emitter, sender)
+    when:
+      events.send("bestSolution", { "1" })
+      events.send("bestSolution", { "2" })
+      events.send("bestSolution", { "3" })
+      events.sendLast("result", { "4" })
+      events.send("bestSolution", { "5" })
+      runAll()
+    then:
+      emitter.sent == ["3", "4"]
+      emitter.completed
+  }
+
+  def "each stream should have at most one task queued at a time"() {
+    given:
+      def emitter = new RecordingEmitter()
+      def events = new EventStream(emitter, sender)
+    when:
+      events.send("bestSolution", { "1" })
+      events.send("other", { "2" })
+    then:
+      tasks.size() == 1
+    when:
+      tasks.remove(0).run()
+    then:
+      emitter.sent == ["1"]
+      tasks.size() == 1
+    when:
+      runAll()
+    then:
+      emitter.sent == ["1", "2"]
+      !emitter.completed
+  }
+
+  def "nothing more should be sent once the client has gone away"() {
+    given:
+      def emitter = new RecordingEmitter(broken: true)
+      def events = new EventStream(emitter, sender)
+      def created = 0
+    when:
+      events.send("bestSolution", { created++; "1" })
+      events.send("other", { created++; "2" })
+      runAll()
+      events.sendLast("result", { created++; "3" })
+      runAll()
+    then:
+      emitter.completed
+      created == 1
+      emitter.sent.isEmpty()
+  }
+
+}
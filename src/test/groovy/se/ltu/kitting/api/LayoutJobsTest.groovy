@@ -0,0 +1,152 @@
+package se.ltu.kitting.api;
+
+import spock.lang.*;
+import java.time.Duration;
+import se.ltu.kitting.LayoutPlanner;
+import se.ltu.kitting.api.json.JsonIO;
+
+public class LayoutJobsTest extends Specification {
+
+  @Shared @AutoCleanup
+  def jobs = new LayoutJobs("unified.xml", "2", LayoutJobs.defaultRetention)
+
+  def request() {
+    return JsonIO.request(getClass().getResource("/demoRequest2.json").text)
+  }
+
+  def "a submitted job should eventually be done with a feasible response"() {
+    when:
+      def job = jobs.submit(request())
+    then:
+      job.await(30_000)
+      job.status() == LayoutJobs.Status.DONE
+      job.response().get().hasFeasibleSolution()
+      job.bestScore().get().isFeasible()
+  }
+
+  def "jobs should get different IDs and be looked up by ID"() {
+    when:
+      def job1 = jobs.submit(request())
+      def job2 = jobs.submit(request())
+    then:
+      job1.id() != job2.id()
+      jobs.job(job1.id()).get().is(job1)
+      jobs.job(job2.id()).get().is(job2)
+    cleanup:
+      [job1, job2]*.await(30_000)
+  }
+
+  def "listeners should be notified of improving best solutions and then once when done"() {
+    given:
+      def scores = []
+      def doneCount = 0
+      def listener = [
+        bestSolutionChanged: { job, best -> scores << best.getScore() },
+        done: { job -> doneCount++ }
+      ] as LayoutJobs.Listener
+    when:
+      def job = jobs.submit(request())
+      job.addListener(listener)
+      job.await(30_000)
+    then:
+      !scores.isEmpty()
+      scores == scores.toSorted()
+      scores.toSet().size() == scores.size()
+      doneCount == 1
+  }
+
+  def "a listener added after the job is done should be notified immediately"() {
+    given:
+      def job = jobs.submit(request())
+      job.await(30_000)
+      def events = []
+    when:
+      job.addListener([
+        bestSolutionChanged: { j, best -> events << "best" },
+        done: { j -> events << "done" }
+      ] as LayoutJobs.Listener)
+    then:
+      events == ["best", "done"]
+  }
+
+  def "snapshot responses should not add messages to the request"() {
+    given:
+      def job = jobs.submit(request())
+      job.await(30_000)
+      def solved = job.response().get().solution().get()
+      def request = request()
+      def before = request.messages().allMessages().size()
+    when: "creating a snapshot, which adds a score message"
+      def response = PlanningResponse.snapshot(request, solved)
+    then:
+      response.messages().allMessages().size() == before + 1
+      request.messages().allMessages().size() == before
+  }
+
+  def "unknown jobs should not be found"() {
+    expect:
+      !jobs.job(-1).isPresent()
+      !jobs.terminate(-1).isPresent()
+  }
+
+  def "a terminated job should be done"() {
+    given:
+      def job = jobs.submit(request())
+    when:
+      jobs.terminate(job.id())
+    then:
+      job.await(30_000)
+      job.response().isPresent()
+  }
+
+  def "a job terminated right after it was submitted should be done"() {
+    when:
+      def submitted = (1..5).collect { jobs.submit(request()) }
+      submitted.each { jobs.terminate(it.id()) }
+    then:
+      submitted.every { it.await(30_000) && it.status() == LayoutJobs.Status.DONE }
+  }
+
+  def "jobs should be answered from the solution cache like other requests"() {
+    given:
+      jobs.submit(request()).await(30_000)
+      def hits = LayoutPlanner.solutionCache().stats().hits
+    when:
+      def job = jobs.submit(request())
+      job.await(30_000)
+    then:
+      LayoutPlanner.solutionCache().stats().hits == hits + 1
+      job.response().get().hasFeasibleSolution()
+  }
+
+  def "a terminated job that was still queued should be done without a solution"() {
+    given: "only one solver, which is busy"
+      def single = new LayoutJobs("unified.xml", "1", LayoutJobs.defaultRetention)
+      def running = single.submit(request())
+      def queued = single.submit(request())
+    when:
+      single.terminate(queued.id())
+    then:
+      queued.await(30_000)
+      queued.status() == LayoutJobs.Status.DONE
+      !queued.response().get().hasFeasibleSolution() || queued.bestScore().isPresent()
+    cleanup:
+      running.await(30_000)
+      single.close()
+  }
+
+  def "finished jobs should be forgotten after the retention period"() {
+    given:
+      def shortLived = new LayoutJobs("unified.xml", "1", Duration.ZERO)
+      def job = shortLived.submit(request())
+      job.await(30_000)
+      Thread.sleep(5)
+    when:
+      shortLived.submit(request()).await(30_000)
+    then:
+      !shortLived.job(job.id()).isPresent()
+    cleanup:
+      shortLived.close()
+  }
+
+}
@@ -0,0 +1,66 @@
+package se.ltu.kitting.api.binary
+
+import spock.lang.*;
+import com.google.gson.Gson;
+import se.ltu.kitting.LayoutPlanner;
+import se.ltu.kitting.api.json.JsonIO;
+import se.ltu.kitting.api.json.LayoutPlanningRequest;
+import se.ltu.kitting.api.json.LayoutPlanningResponse;
+import se.ltu.kitting.model.*;
+
+class BinaryIOTest extends Specification {
+
+  @Shared String json = getClass().getResource("/demoRequest2.json").text
+  @Shared Gson gson = new Gson()
+
+  def "a binary request should decode to the same request as the JSON"() {
+    given:
+      def request = JsonIO.request(json)
+      def bytes = BinaryIO.toBinary(request)
+    when:
+      def decoded = BinaryIO.request(bytes)
+    then:
+      JsonIO.toJson(decoded) == JsonIO.toJson(request)
+      decoded.parts()*.getAllowedDown() == request.parts()*.getAllowedDown()
+      decoded.parts()*.getMargin() == request.parts()*.getMargin()
+      BinaryIO.toBinary(decoded) == bytes
+    and: "it is smaller than the JSON"
+      bytes.length < json.length() / 3
+  }
+
+  def "hints, margins and unsupported rotations should survive the round trip"() {
+    given:
+      def tree = gson.fromJson(json, LayoutPlanningRequest)
+      tree.parts[0].layoutHint = new LayoutPlanningRequest.Part.LayoutHint(
+        origin: Dimensions.of(10, -20, 3), surfaceId: 1, rotation: 90, weightFactor: 10, orientation: Side.top)
+      def request = JsonIO.request(gson.toJson(tree))
+      request.parts()[1].setMargin(7)
+      request.parts()[1].setHint(LayoutHint.hint(Dimensions.of(1, 2, 3), 0))
+    when:
+      def decoded = BinaryIO.request(BinaryIO.toBinary(request))
+    then:
+      JsonIO.toJson(decoded) == JsonIO.toJson(request)
+      decoded.parts()[0].getHint().isMandatory()
+      decoded.parts()[1].getHint().rotation().isEmpty()
+      decoded.parts()[1].getMargin() == 7
+  }
+
+  def "a binary response should decode to the same response as the JSON"() {
+    given:
+      def response = LayoutPlanner.requestLayout(JsonIO.request(json))
+    when:
+      def decoded = BinaryIO.response(BinaryIO.toBinary(response))
+    then:
+      gson.toJson(decoded) == JsonIO.toJson(response)
+  }
+
+  def "malformed input should be rejected"() {
+    when:
+      BinaryIO.request(input as byte[])
+    then:
+      thrown(IllegalArgumentException)
+    where:
+      input << [[1, 2, 3, 4, 1], [0x4b, 0x52, 0x45, 0x51, 1, 3]]
+  }
+
+}
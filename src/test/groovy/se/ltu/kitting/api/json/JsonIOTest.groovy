@@ -0,0 +1,53 @@
+package se.ltu.kitting.api.json
+
+import spock.lang.*;
+import com.google.gson.Gson;
+import se.ltu.kitting.LayoutPlanner;
+import se.ltu.kitting.api.PlanningResponse;
+
+import static ch.rfin.util.Pair.pair;
+
+class JsonIOTest extends Specification {
+
+  @Shared String json = getClass().getResource("/demoRequest2.json").text
+  @Shared Gson gson = new Gson()
+
+  def "a streamed request should be the same as one parsed all at once"() {
+    given:
+      def tree = gson.fromJson(json, LayoutPlanningRequest)
+    expect:
+      JsonIO.toJson(JsonIO.request(new StringReader(json))) == JsonIO.toJson(JsonIO.request(tree))
+  }
+
+  def "unsupported hint rotations should be reported when streaming"() {
+    given:
+      def tree = gson.fromJson(json, LayoutPlanningRequest)
+      tree.parts[0].layoutHint = new LayoutPlanningRequest.Part.LayoutHint(origin: tree.parts[0].dimensions, rotation: 45)
+    when:
+      def request = JsonIO.request(new StringReader(gson.toJson(tree)))
+    then:
+      request.messages().partMessages(tree.parts[0].id).get()*.isWarning() == [true]
+  }
+
+  def "a streamed response should be the same as one built from a tree"() {
+    given:
+      def response = LayoutPlanner.requestLayout(JsonIO.request(json))
+      def out = new StringWriter()
+    when:
+      JsonIO.writeResponse(response, out)
+    then:
+      out.toString() == gson.toJson(JsonIO.response(response))
+  }
+
+  def "a streamed batch response should be the same as one built from a tree"() {
+    given:
+      def responses = JsonIO.batchRequest('{"requests": [' + json + ',' + json + ']}')
+        .collect { pair(PlanningResponse.response(it), 5L) }
+      def out = new StringWriter()
+    when:
+      JsonIO.writeBatchResponse(responses, 12, out)
+    then:
+      out.toString() == gson.toJson(JsonIO.batchResponse(responses, 12))
+  }
+
+}
@@ -0,0 +1,88 @@
+package se.ltu.kitting.cache
+
+import spock.lang.*;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import se.ltu.kitting.algo.HintInit;
+import se.ltu.kitting.model.*;
+import se.ltu.kitting.test.LayoutBuilder;
+
+class RecentSolutionsTest extends Specification {
+
+  // One part per part number, each 10x10x5.
+  def kit(List<String> partNumbers, int width = 100) {
+    def builder = LayoutBuilder.builder().surface(width, 100, 50)
+    partNumbers.eachWithIndex { number, i ->
+      builder.part().id(i + 1).partNumber(number).dimensions(10, 10, 5).add()
+    }
+    return builder.build()
+  }
+
+  // Places part i at x = 20*i.
+  def solve(Layout layout, HardSoftLongScore score = HardSoftLongScore.ZERO) {
+    def solved = Layout.copyOf(layout)
+    solved.getParts().eachWithIndex { part, i ->
+      part.setSideDown(Side.bottom)
+      part.setRotation(Rotation.ZERO)
+      part.setPosition(Dimensions.of(20 * i, 0, -1))
+    }
+    solved.setScore(score)
+    return solved
+  }
+
+  def "parts of a similar kit should get the placements of the matching parts"() {
+    given:
+      def recent = new RecentSolutions()
+      recent.add(solve(kit(["a", "b", "c"])))
+      def layout = kit(["c", "a", "d"])
+    when:
+      def count = recent.warmStart(layout)
+    then:
+      count == 2
+      layout.getParts()[0].getWarmStart().centerPosition() == Dimensions.of(45, 5, 2)
+      layout.getParts()[1].getWarmStart().centerPosition() == Dimensions.of(5, 5, 2)
+      layout.getParts()[2].getWarmStart() == null
+    and: "warm starts are not hints"
+      layout.getParts().every { !it.hasHint() }
+  }
+
+  def "hint initialization should place parts at their warm starts"() {
+    given:
+      def recent = new RecentSolutions()
+      recent.add(solve(kit(["a", "b"])))
+      def layout = kit(["b", "a"])
+      recent.warmStart(layout)
+    when:
+      new HintInit().changeWorkingSolution(Stub(ScoreDirector) { getWorkingSolution() >> layout })
+    then:
+      layout.getParts()*.getPosition() == [Dimensions.of(20, 0, -1), Dimensions.of(0, 0, -1)]
+  }
+
+  @Unroll
+  def "no warm start should be used for #reason"() {
+    given:
+      def recent = new RecentSolutions(10, 0.5)
+      recent.add(solved)
+    expect:
+      recent.warmStart(layout) == 0
+      layout.getParts().every { it.getWarmStart() == null }
+    where:
+      reason                  | solved                                                      | layout
+      "too little overlap"    | solve(kit(["a", "b", "c"]))                                 | kit(["a", "x", "y"])
+      "different surfaces"    | solve(kit(["a", "b", "c"]))                                 | kit(["a", "b", "c"], 90)
+      "infeasible solutions"  | solve(kit(["a", "b", "c"]), HardSoftLongScore.of(-1, 0))    | kit(["a", "b", "c"])
+  }
+
+  def "the most similar solution should be used"() {
+    given:
+      def recent = new RecentSolutions()
+      recent.add(solve(kit(["a", "x", "y", "z"])))
+      recent.add(solve(kit(["y", "a", "b", "c"])))
+      def layout = kit(["a", "b", "c", "d"])
+    expect:
+      recent.warmStart(layout) == 3
+      layout.getParts()[0].getWarmStart().centerPosition() == Dimensions.of(25, 5, 2)
+      recent.stats().warmStartedParts == 3
+  }
+
+}
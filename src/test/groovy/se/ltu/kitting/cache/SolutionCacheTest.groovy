@@ -0,0 +1,109 @@
+package se.ltu.kitting.cache
+
+import spock.lang.*;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import se.ltu.kitting.model.*;
+import se.ltu.kitting.test.LayoutBuilder;
+
+class SolutionCacheTest extends Specification {
+
+  // Part "a" is 10x20x5 and part "b" is 30x30x5, with the given IDs.
+  def kit(int idA, int idB, boolean reversed = false) {
+    def builder = LayoutBuilder.builder().surface(100, 100, 50)
+    def a = { builder.part().id(idA).partNumber("a").dimensions(10, 20, 5).add() }
+    def b = { builder.part().id(idB).partNumber("b").dimensions(30, 30, 5).add() }
+    reversed ? [b, a]*.call() : [a, b]*.call()
+    return builder.build()
+  }
+
+  def solve(Layout layout, HardSoftLongScore score = HardSoftLongScore.ZERO) {
+    def solved = Layout.copyOf(layout)
+    solved.getParts().each {
+      it.setSideDown(Side.bottom)
+      it.setRotation(Rotation.ZERO)
+      it.setPosition(it.getPartNumber() == "a" ? Dimensions.of(0, 0, -1) : Dimensions.of(50, 50, -1))
+    }
+    solved.setScore(score)
+    return solved
+  }
+
+  def "kits that only differ in part IDs and order should have the same fingerprint"() {
+    expect:
+      KitFingerprint.of(kit(1, 2)) == KitFingerprint.of(kit(7, 3, true))
+      KitFingerprint.of(kit(1, 2)).digest() == KitFingerprint.of(kit(7, 3, true)).digest()
+  }
+
+  @Unroll
+  def "kits with a different #change should have different fingerprints"() {
+    given:
+      def other = kit(1, 2)
+      modify(other.getParts().find { it.getPartNumber() == "a" })
+    expect:
+      KitFingerprint.of(kit(1, 2)) != KitFingerprint.of(other)
+    where:
+      change           | modify
+      "size"           | { it.setSize(Dimensions.of(10, 20, 6)) }
+      "margin"         | { it.setMargin(1) }
+      "allowed sides"  | { it.setAllowedDown([Side.bottom]) }
+      "preferred side" | { it.setPreferredDown(Side.top) }
+      "hint"           | { it.setHint(LayoutHint.hint(Dimensions.of(5, 10, 2), -1)) }
+      "part number"    | { it.setPartNumber("c") }
+  }
+
+  def "kits with different surfaces should have different fingerprints"() {
+    given:
+      def other = LayoutBuilder.builder().surface(100, 90, 50).parts(kit(1, 2).getParts() as Part[]).build()
+    expect:
+      KitFingerprint.of(kit(1, 2)) != KitFingerprint.of(other)
+  }
+
+  def "a cached solution should be applied to the parts of an identical kit"() {
+    given:
+      def cache = new SolutionCache()
+      def first = kit(1, 2)
+      cache.put(KitFingerprint.of(first), solve(first))
+      def second = kit(8, 9, true)
+    when:
+      def solved = cache.get(KitFingerprint.of(second), second).get()
+      def a = solved.getParts().find { it.getPartNumber() == "a" }
+      def b = solved.getParts().find { it.getPartNumber() == "b" }
+    then: "parts are placed by part number, but keep their IDs"
+      [a.getId(), b.getId()] == [8, 9]
+      a.getPosition() == Dimensions.of(0, 0, -1)
+      b.getPosition() == Dimensions.of(50, 50, -1)
+      solved.getScore() == HardSoftLongScore.ZERO
+    and: "the original layout is not modified"
+      second.getParts().every { it.getPosition() == null }
+    and:
+      cache.hits() == 1
+      cache.misses() == 0
+  }
+
+  def "infeasible solutions should not be cached"() {
+    given:
+      def cache = new SolutionCache()
+      def layout = kit(1, 2)
+    expect:
+      !cache.put(KitFingerprint.of(layout), solve(layout, HardSoftLongScore.of(-1, 0)))
+      !cache.get(KitFingerprint.of(layout), layout).isPresent()
+      cache.hitRate() == 0.0
+  }
+
+  def "the least recently used solution should be evicted when full"() {
+    given:
+      def cache = new SolutionCache(2)
+      def layouts = (1..3).collect { margin -> kit(1, 2).tap { it.getParts()[0].setMargin(margin) } }
+      def keys = layouts.collect { KitFingerprint.of(it) }
+    when:
+      cache.put(keys[0], solve(layouts[0]))
+      cache.put(keys[1], solve(layouts[1]))
+      cache.get(keys[0])
+      cache.put(keys[2], solve(layouts[2]))
+    then:
+      cache.size() == 2
+      cache.get(keys[0]).isPresent()
+      !cache.get(keys[1]).isPresent()
+      cache.get(keys[2]).isPresent()
+  }
+
+}
@@ -0,0 +1,119 @@
+package se.ltu.kitting.cache
+
+import spock.lang.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import se.ltu.kitting.model.*;
+import se.ltu.kitting.test.LayoutBuilder;
+
+class SolutionStoreTest extends Specification {
+
+  Path dir
+  SolutionStore store
+
+  def setup() {
+    dir = Files.createTempDirectory("solutions")
+    store = SolutionStore.open(dir)
+  }
+
+  def cleanup() {
+    store.close()
+    dir.toFile().deleteDir()
+  }
+
+  // Parts "a" and "b" with the given margin (to get different fingerprints).
+  def kit(int margin = 0) {
+    def builder = LayoutBuilder.builder().surface(100, 100, 50)
+    builder.part().id(1).partNumber("a").dimensions(10, 20, 5).add()
+    builder.part().id(2).partNumber("b").dimensions(30, 30, 5).add()
+    return builder.build().tap { it.getParts()[0].setMargin(margin) }
+  }
+
+  def solve(Layout layout, HardSoftLongScore score = HardSoftLongScore.ZERO) {
+    def solved = Layout.copyOf(layout)
+    solved.getParts()[0].with { setSideDown(Side.left); setRotation(Rotation.Z90); setPosition(Dimensions.of(0, 0, -1)) }
+    solved.getParts()[1].with { setSideDown(Side.bottom); setRotation(Rotation.ZERO); setPosition(Dimensions.of(50, 60, -1)) }
+    solved.setScore(score)
+    return solved
+  }
+
+  def reopen() {
+    store.close()
+    store = SolutionStore.open(dir)
+  }
+
+  def "a stored solution should survive reopening the store"() {
+    given:
+      def layout = kit()
+      def key = KitFingerprint.of(layout)
+      store.put(key, solve(layout, HardSoftLongScore.of(0, -3)))
+    when:
+      reopen()
+      def solved = store.get(key, layout).get()
+    then:
+      solved.getParts()*.getSideDown() == [Side.left, Side.bottom]
+      solved.getParts()*.getRotation() == [Rotation.Z90, Rotation.ZERO]
+      solved.getParts()*.getPosition() == [Dimensions.of(0, 0, -1), Dimensions.of(50, 60, -1)]
+      solved.getScore() == HardSoftLongScore.of(0, -3)
+      store.size() == 1
+  }
+
+  def "only infeasible or worse solutions should be rejected"() {
+    given:
+      def layout = kit()
+      def key = KitFingerprint.of(layout)
+    expect:
+      !store.put(key, solve(layout, HardSoftLongScore.of(-1, 0)))
+      store.put(key, solve(layout, HardSoftLongScore.of(0, -5)))
+      !store.put(key, solve(layout, HardSoftLongScore.of(0, -5)))
+      store.put(key, solve(layout, HardSoftLongScore.of(0, -1)))
+      store.get(key).get().score() == HardSoftLongScore.of(0, -1)
+      store.size() == 1
+  }
+
+  def "the index should grow and be rebuilt from the data if it is lost"() {
+    given:
+      def layouts = (0..<1500).collect { kit(it) }
+      layouts.each { store.put(KitFingerprint.of(it), solve(it)) }
+    when:
+      store.close()
+      Files.delete(dir.resolve(SolutionStore.indexFileName))
+      store = SolutionStore.open(dir)
+    then:
+      store.size() == 1500
+      layouts.every { store.get(KitFingerprint.of(it)).isPresent() }
+      !store.get(KitFingerprint.of(kit(2000))).isPresent()
+  }
+
+  def "a partially written record should be discarded"() {
+    given:
+      def layouts = [kit(1), kit(2)]
+      layouts.each { store.put(KitFingerprint.of(it), solve(it)) }
+      store.close()
+      def data = dir.resolve(SolutionStore.dataFileName)
+      def bytes = Files.readAllBytes(data)
+      Files.write(data, Arrays.copyOf(bytes, bytes.length - 3))
+      Files.delete(dir.resolve(SolutionStore.indexFileName))
+    when:
+      store = SolutionStore.open(dir)
+    then:
+      store.size() == 1
+      store.get(KitFingerprint.of(layouts[0])).isPresent()
+      !store.get(KitFingerprint.of(layouts[1])).isPresent()
+      store.put(KitFingerprint.of(layouts[1]), solve(layouts[1]))
+  }
+
+  def "a store that is already open should not be opened again"() {
+    when:
+      SolutionStore.open(dir)
+    then:
+      def e = thrown(IllegalStateException)
+      e.message.contains(dir.toString())
+    when:
+      reopen()
+    then:
+      notThrown(Exception)
+  }
+
+}
@@ -195,6 +195,57 @@ class PartTest extends Specification {
       part.currentRegion() == pair(Dimensions.of(200,300,400), Dimensions.of(299,499,699))
   }
 
+  @Unroll
+  def "cached dimensions should follow side #side and rotation #rotation"() {
+    given: "a part whose dimensions have already been cached"
+      def part = getPart([100,200,300])
+      part.setPosition(Dimensions.of(10,20,1))
+      part.setSideDown(bottom)
+      part.setRotation(Rotation.ZERO)
+      part.width()
+    when:
+      part.setSideDown(side)
+      part.setRotation(rotation)
+      def expected = Rotation.rotation(side, rotation).apply(part.getSize())
+    then:
+      part.currentDimensions() == expected
+      [part.left(), part.back()] == [10, 20]
+      [part.right(), part.front()] == [10 + expected.x - 1, 20 + expected.y - 1]
+      part.currentCenter() == Dimensions.of(10 + expected.x.intdiv(2), 20 + expected.y.intdiv(2), expected.z.intdiv(2))
+    where:
+      [side, rotation] << [Side.values(), [Rotation.ZERO, Rotation.Z90]].combinations()
+  }
+
+  @Unroll
+  def "part should be pinned when placed at a full mandatory hint (#description)"() {
+    given:
+      def part = getPart([40, 20, 10])
+      part.setHint(hint)
+      part.setSideDown(bottom)
+      part.setRotation(Rotation.ZERO)
+      part.setPosition(Dimensions.of(10, 20, -1))
+    expect:
+      part.isPinned() == pinned
+    where:
+      description         | hint                                                                                  | pinned
+      "full hint"         | LayoutHint.mandatory(Dimensions.of(30, 30, 0), -1, Rotation.ZERO).withSide(bottom)    | true
+      "no side"           | LayoutHint.mandatory(Dimensions.of(30, 30, 0), -1, Rotation.ZERO)                     | false
+      "no rotation"       | LayoutHint.mandatory(Dimensions.of(30, 30, 0), -1).withSide(bottom)                   | false
+      "optional"          | LayoutHint.hint(Dimensions.of(30, 30, 0), -1).withRotation(Rotation.ZERO).withSide(bottom) | false
+      "elsewhere"         | LayoutHint.mandatory(Dimensions.of(31, 30, 0), -1, Rotation.ZERO).withSide(bottom)    | false
+      "other rotation"    | LayoutHint.mandatory(Dimensions.of(30, 30, 0), -1, Rotation.Z90).withSide(bottom)     | false
+      "other surface"     | LayoutHint.mandatory(Dimensions.of(30, 30, 0), -2, Rotation.ZERO).withSide(bottom)    | false
+      "no hint"           | null                                                                                  | false
+  }
+
+  def "part with a full mandatory hint should not be pinned before it is placed"() {
+    given:
+      def part = getPart([40, 20, 10])
+      part.setHint(LayoutHint.mandatory(Dimensions.of(30, 30, 0), -1, Rotation.ZERO).withSide(bottom))
+    expect:
+      !part.isPinned()
+  }
+
 
   def getPart(List size) {
     return new Part(1, "1", Dimensions.of(size[0], size[1], size[2]))
@@ -0,0 +1,57 @@
+package se.ltu.kitting.model
+
+import spock.lang.*;
+
+class PositionRangeCacheTest extends Specification {
+
+  def surface(int id, int x, int y) {
+    Surface.surface(id, Dimensions.of(x, y, 50), Dimensions.of(0, 0, 0))
+  }
+
+  def "wagons with the same surfaces should share a range"() {
+    given:
+      def cache = new PositionRangeCache()
+    when:
+      def r1 = cache.get(Wagon.of("a", [surface(1, 100, 80)]), 10)
+      def r2 = cache.get(Wagon.of("b", [surface(1, 100, 80)]), 10)
+    then:
+      r1.is(r2)
+      cache.hits() == 1
+      cache.misses() == 1
+      cache.hitRate() == 0.5
+  }
+
+  def "different step sizes or surfaces should not share a range"() {
+    given:
+      def cache = new PositionRangeCache()
+    when:
+      cache.get(Wagon.of([surface(1, 100, 80)]), 10)
+      cache.get(Wagon.of([surface(1, 100, 80)]), 5)
+      cache.get(Wagon.of([surface(2, 100, 80)]), 10)
+      cache.get(Wagon.of([surface(1, 100, 90)]), 10)
+    then:
+      cache.hits() == 0
+      cache.misses() == 4
+      cache.size() == 4
+  }
+
+  def "the least recently used range should be evicted when full"() {
+    given:
+      def cache = new PositionRangeCache(2)
+      def w1 = Wagon.of([surface(1, 100, 80)])
+      def w2 = Wagon.of([surface(2, 100, 80)])
+      def w3 = Wagon.of([surface(3, 100, 80)])
+    when:
+      cache.get(w1, 10)
+      cache.get(w2, 10)
+      cache.get(w1, 10)
+      cache.get(w3, 10)
+      cache.get(w1, 10)
+      cache.get(w2, 10)
+    then:
+      cache.size() == 2
+      cache.hits() == 2
+      cache.misses() == 4
+  }
+
+}
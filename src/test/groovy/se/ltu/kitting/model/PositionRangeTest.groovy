@@ -0,0 +1,160 @@
+package se.ltu.kitting.model
+
+import spock.lang.*;
+
+class PositionRangeTest extends Specification {
+
+  @Unroll
+  def "range should contain the same positions as the provider (step #step)"() {
+    given:
+      def wagon = Wagon.of([
+        Surface.surface(1, Dimensions.of(120, 80, 50), Dimensions.of(0, 0, 0)),
+        Surface.surface(2, Dimensions.of(33, 17, 50), Dimensions.of(0, 0, 50)),
+      ])
+      def expected = PositionProvider.positions(wagon, step, false)
+      def range = PositionProvider.range(wagon, step)
+    expect:
+      range.getSize() == expected.size()
+      range.asList() == expected
+      range.createOriginalIterator().collect() == expected
+      expected.every { range.contains(it) }
+    where:
+      step << [1, 3, 5, 10, 50, 200]
+  }
+
+  def "positions that are off the grid or outside the surfaces should not be contained"() {
+    given:
+      def wagon = Wagon.of([Surface.surface(1, Dimensions.of(100, 100, 50), Dimensions.of(0, 0, 0))])
+      def range = PositionProvider.range(wagon, 10)
+    expect:
+      range.contains(Dimensions.of(90, 90, 1))
+      !range.contains(Dimensions.of(5, 0, 1))
+      !range.contains(Dimensions.of(100, 0, 1))
+      !range.contains(Dimensions.of(0, 0, 2))
+      !range.contains(Dimensions.of(-10, 0, 1))
+  }
+
+  def "random iterator should only return positions in the range"() {
+    given:
+      def wagon = Wagon.of([Surface.surface(1, Dimensions.of(100, 60, 50), Dimensions.of(0, 0, 0))])
+      def range = PositionProvider.range(wagon, 7)
+      def iterator = range.createRandomIterator(new Random(1))
+    expect:
+      (1..200).every { range.contains(iterator.next()) }
+  }
+
+  @Unroll
+  def "footprint range should contain exactly the grid and flush positions where a #w x #d x #h part fits"() {
+    given:
+      def surfaces = [
+        Surface.surface(1, Dimensions.of(100, 60, 50), Dimensions.of(0, 0, 0)),
+        Surface.surface(2, Dimensions.of(45, 80, 20), Dimensions.of(0, 0, 50)),
+      ]
+      def range = PositionRange.forFootprint(Wagon.of(surfaces), 7, w, d, h)
+      def fits = { x, y, s -> x + w <= s.width() && y + d <= s.depth() && h <= s.height() }
+      def expected = surfaces.collectMany { s ->
+        def xs = (0..<s.width()).findAll { it % 7 == 0 || it == s.width() - w }
+        def ys = (0..<s.depth()).findAll { it % 7 == 0 || it == s.depth() - d }
+        [xs, ys].combinations().findAll { x, y -> fits(x, y, s) }.collect { x, y -> Dimensions.of(x, y, s.id()) }
+      }
+    expect:
+      range.asList() as Set == expected as Set
+      range.getSize() == expected.size()
+      expected.every { range.contains(it) }
+      !range.contains(Dimensions.of(1, 0, 1))
+    where:
+      w   | d  | h
+      10  | 10 | 10
+      30  | 50 | 30
+      45  | 60 | 20
+      100 | 60 | 50
+  }
+
+  def "footprint range should be empty when the part fits nowhere"() {
+    given:
+      def wagon = Wagon.of([Surface.surface(1, Dimensions.of(100, 60, 50), Dimensions.of(0, 0, 0))])
+    expect:
+      PositionRange.forFootprint(wagon, 10, 101, 10, 10).isEmpty()
+      PositionRange.forFootprint(wagon, 10, 10, 10, 51).isEmpty()
+  }
+
+  def "part position range should follow the current rotation"() {
+    given:
+      def wagon = Wagon.of([Surface.surface(1, Dimensions.of(100, 60, 50), Dimensions.of(0, 0, 0))])
+      def part = new Part(1, "1", Dimensions.of(50, 10, 10))
+      part.setAllowedDown([Side.bottom])
+      new Layout(wagon, [part]).setPositionStepSize(10)
+    when:
+      part.setSideDown(Side.bottom)
+      part.setRotation(Rotation.ZERO)
+    then:
+      part.getPositionRange().contains(Dimensions.of(50, 50, 1))
+      !part.getPositionRange().contains(Dimensions.of(60, 0, 1))
+    when:
+      part.setRotation(Rotation.Z90)
+    then:
+      part.getPositionRange().contains(Dimensions.of(90, 10, 1))
+      !part.getPositionRange().contains(Dimensions.of(0, 20, 1))
+  }
+
+  def "part position range should fall back to all positions when the part fits nowhere"() {
+    given:
+      def wagon = Wagon.of([Surface.surface(1, Dimensions.of(100, 60, 50), Dimensions.of(0, 0, 0))])
+      def part = new Part(1, "1", Dimensions.of(500, 10, 10))
+      part.setAllowedDown([Side.bottom])
+      new Layout(wagon, [part]).setPositionStepSize(10)
+      part.setSideDown(Side.bottom)
+      part.setRotation(Rotation.ZERO)
+    expect:
+      part.getPositionRange().getSize() == PositionProvider.range(wagon, 10).getSize()
+  }
+
+  def "each surface should use its own step size"() {
+    given:
+      def wagon = Wagon.of([
+        Surface.surface(1, Dimensions.of(120, 80, 50), Dimensions.of(0, 0, 0)),
+        Surface.surface(2, Dimensions.of(33, 17, 50), Dimensions.of(0, 0, 50)),
+      ])
+      def range = PositionProvider.range(wagon, StepSizes.of(10, 3))
+      def expected = PositionProvider.positions(wagon, 10, false).findAll { it.z == 1 } +
+        PositionProvider.positions(wagon, 3, false).findAll { it.z == 2 }
+    expect:
+      range.asList() == expected
+      expected.every { range.contains(it) }
+      !range.contains(Dimensions.of(3, 0, 1))
+      range.getStepSize() == 3
+  }
+
+  def "step sizes for a target count should give each surface about that many positions"() {
+    given:
+      def wagon = Wagon.of([
+        Surface.surface(1, Dimensions.of(2000, 1000, 50), Dimensions.of(0, 0, 0)),
+        Surface.surface(2, Dimensions.of(200, 100, 50), Dimensions.of(0, 0, 50)),
+      ])
+      def steps = StepSizes.forPositionCount(wagon, 200)
+      def range = PositionProvider.range(wagon, steps)
+    expect:
+      steps == StepSizes.of(100, 10)
+      range.asList().count { it.z == 1 } == 200
+      range.asList().count { it.z == 2 } == 200
+  }
+
+  def "step size from the smallest part dimension"() {
+    given:
+      def parts = [new Part(1, "a", Dimensions.of(100, 40, 60)), new Part(2, "b", Dimensions.of(30, 90, 50))]
+    expect:
+      StepSizes.forSmallestPart(parts, 0.5) == StepSizes.of(15)
+      StepSizes.forSmallestPart(parts, 0.01) == StepSizes.of(1)
+      StepSizes.forSmallestPart([], 0.5) == StepSizes.of(1)
+  }
+
+  def "the number of step sizes should match the number of surfaces"() {
+    given:
+      def wagon = Wagon.of([Surface.surface(1, Dimensions.of(100, 100, 50), Dimensions.of(0, 0, 0))])
+    when:
+      PositionProvider.range(wagon, StepSizes.of(10, 5))
+    then:
+      thrown(IllegalArgumentException)
+  }
+
+}
@@ -0,0 +1,58 @@
+package se.ltu.kitting.score
+
+import spock.lang.*;
+import se.ltu.kitting.model.*;
+import se.ltu.kitting.test.LayoutExamples;
+
+class IncrementalScoreCalculatorTest extends Specification {
+
+  @Unroll
+  def "incremental score should match the easy score for #name"() {
+    given: "a randomly initialized copy of the layout"
+      def rng = new Random(123)
+      def layout = Layout.copyOf(original)
+      layout.setPositionStepSize(10)
+      def positions = layout.getPositions().asList()
+      layout.getParts().each { part ->
+        part.setPosition(positions[rng.nextInt(positions.size())])
+        part.setRotation([Rotation.ZERO, Rotation.Z90][rng.nextInt(2)])
+        part.setSideDown(Side.values()[rng.nextInt(6)])
+      }
+      def incremental = new IncrementalScoreCalculator()
+      def easy = new ScoreCalculator()
+    when:
+      incremental.resetWorkingSolution(layout)
+    then:
+      incremental.calculateScore() == easy.calculateScore(layout)
+    and: "the scores still match after each of a series of random changes"
+      (1..300).every {
+        change(incremental, layout.getParts(), positions, rng)
+        incremental.calculateScore() == easy.calculateScore(layout)
+      }
+    where:
+      [name, original] << (LayoutExamples.getAll() + LayoutExamples.realisticLayouts()).collect { [it._1, it._2] }
+  }
+
+  // Change a random variable of a random part, occasionally uninitializing it.
+  def change(IncrementalScoreCalculator calculator, List<Part> parts, List positions, Random rng) {
+    def part = parts[rng.nextInt(parts.size())]
+    def unset = rng.nextInt(20) == 0
+    switch (rng.nextInt(3)) {
+      case 0:
+        calculator.beforeVariableChanged(part, "position")
+        part.setPosition(unset ? null : positions[rng.nextInt(positions.size())])
+        calculator.afterVariableChanged(part, "position")
+        break
+      case 1:
+        calculator.beforeVariableChanged(part, "rotation")
+        part.setRotation(unset ? null : [Rotation.ZERO, Rotation.Z90][rng.nextInt(2)])
+        calculator.afterVariableChanged(part, "rotation")
+        break
+      default:
+        calculator.beforeVariableChanged(part, "sideDown")
+        part.setSideDown(unset ? null : Side.values()[rng.nextInt(6)])
+        calculator.afterVariableChanged(part, "sideDown")
+    }
+  }
+
+}
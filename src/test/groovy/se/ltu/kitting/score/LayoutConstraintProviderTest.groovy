@@ -0,0 +1,36 @@
+package se.ltu.kitting.score
+
+import spock.lang.*;
+import org.optaplanner.core.api.score.ScoreManager;
+import org.optaplanner.core.api.solver.SolverFactory;
+import se.ltu.kitting.model.*;
+import se.ltu.kitting.test.LayoutExamples;
+
+class LayoutConstraintProviderTest extends Specification {
+
+  @Shared
+  def scoreManager = ScoreManager.create(SolverFactory.createFromXmlResource("unifiedConstraintStreams.xml"))
+
+  @Unroll
+  def "constraint streams score should match the easy score for #name"() {
+    given: "a copy of the layout"
+      def rng = new Random(321)
+      def layout = Layout.copyOf(original)
+      layout.setPositionStepSize(10)
+      def positions = layout.getPositions().asList()
+      def easy = new ScoreCalculator()
+    expect: "the scores match for a series of random placements, some only partially initialized"
+      (1..30).every {
+        layout.getParts().each { part ->
+          def unset = rng.nextInt(10) == 0
+          part.setPosition(unset && rng.nextBoolean() ? null : positions[rng.nextInt(positions.size())])
+          part.setRotation(unset && rng.nextBoolean() ? null : [Rotation.ZERO, Rotation.Z90][rng.nextInt(2)])
+          part.setSideDown(unset && rng.nextBoolean() ? null : Side.values()[rng.nextInt(6)])
+        }
+        scoreManager.updateScore(layout).withInitScore(0) == easy.calculateScore(layout)
+      }
+    where:
+      [name, original] << (LayoutExamples.getAll() + LayoutExamples.realisticLayouts()).collect { [it._1, it._2] }
+  }
+
+}
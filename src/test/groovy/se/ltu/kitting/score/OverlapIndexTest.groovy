@@ -0,0 +1,76 @@
+package se.ltu.kitting.score
+
+import spock.lang.*;
+import se.ltu.kitting.model.*;
+
+class OverlapIndexTest extends Specification {
+
+  @Unroll
+  def "index should find the same overlapping pairs as comparing all pairs (seed #seed)"() {
+    given: "randomly placed parts with margins on two surfaces"
+      def parts = randomParts(new Random(seed), 60)
+      def index = OverlapIndex.of(parts)
+    expect:
+      index.countOverlappingPairs() == bruteForceCount(parts)
+    where:
+      seed << (1..10)
+  }
+
+  def "parts on different surfaces should never be candidates"() {
+    given:
+      def p1 = part(1, [10,10,1], [0,0,1], 0)
+      def p2 = part(2, [10,10,1], [0,0,2], 0)
+    expect:
+      OverlapIndex.of([p1, p2]).countOverlappingPairs() == 0
+  }
+
+  def "uninitialized parts should be ignored"() {
+    given:
+      def p1 = part(1, [10,10,1], [0,0,1], 0)
+      def p2 = part(2, [10,10,1], [0,0,1], 0)
+      p2.setRotation(null)
+    expect:
+      OverlapIndex.of([p1, p2]).countOverlappingPairs() == 0
+  }
+
+  def "parts within each other's margin should overlap"() {
+    given:
+      def p1 = part(1, [10,10,1], [0,0,1], 0)
+      def p2 = part(2, [10,10,1], [12,0,1], 5)
+    expect:
+      OverlapIndex.of([p1, p2]).countOverlappingPairs() == 1
+      OverlapIndex.of([p1, p2]).totalOverlappingArea() == HardScore.overlappingPartArea(p1, p2)
+  }
+
+  def bruteForceCount(List<Part> parts) {
+    def count = 0
+    for (int i = 0; i < parts.size(); i++) {
+      for (int j = i + 1; j < parts.size(); j++) {
+        if (parts[i].fullyInitialized() && parts[j].fullyInitialized() && HardScore.partsOverlap(parts[i], parts[j])) {
+          count++
+        }
+      }
+    }
+    return count
+  }
+
+  def randomParts(Random rng, int count) {
+    (1..count).collect { id ->
+      def size = [10 + rng.nextInt(90), 10 + rng.nextInt(90), 1 + rng.nextInt(50)]
+      def position = [rng.nextInt(1000), rng.nextInt(500), 1 + rng.nextInt(2)]
+      def p = part(id, size, position, rng.nextInt(4) * 5)
+      p.setRotation([Rotation.ZERO, Rotation.Z90][rng.nextInt(2)])
+      p.setSideDown(Side.values()[rng.nextInt(6)])
+      return p
+    }
+  }
+
+  def part(int id, List size, List position, int margin) {
+    def p = new Part(id, "" + id, Dimensions.of(size[0], size[1], size[2]), Dimensions.of(position[0], position[1], position[2]))
+    p.setRotation(Rotation.ZERO)
+    p.setSideDown(Side.bottom)
+    p.setMargin(margin)
+    return p
+  }
+
+}
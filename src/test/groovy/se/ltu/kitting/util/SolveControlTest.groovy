@@ -0,0 +1,44 @@
+package se.ltu.kitting.util
+
+import spock.lang.*;
+import se.ltu.kitting.test.LayoutExamples;
+
+class SolveControlTest extends Specification {
+
+  def layout() {
+    return LayoutExamples.layouts(4).get(0)._2
+  }
+
+  def "a solver attached to a terminated control should stop as soon as it starts"() {
+    given:
+      def control = new SolveControl()
+      def solver = SolverFactories.solver("unified.xml")
+      control.attach(solver)
+    when:
+      control.terminate()
+      def start = System.currentTimeMillis()
+      solver.solve(layout())
+    then:
+      control.isTerminated()
+      System.currentTimeMillis() - start < 2000
+  }
+
+  def "the listener should only be notified of improvements"() {
+    given:
+      def scores = []
+      def control = new SolveControl({ scores << it.getScore() })
+      def config = SolverFactories.config("unified.xml")
+      config.getTerminationConfig().setSecondsSpentLimit(2)
+      def solver = SolverFactories.solver(config)
+      control.attach(solver)
+    when:
+      def solved = solver.solve(layout())
+      control.report(solved)
+    then:
+      !scores.isEmpty()
+      scores == scores.toSorted()
+      scores.toSet().size() == scores.size()
+      scores.last() == solved.getScore()
+  }
+
+}
@@ -0,0 +1,62 @@
+package se.ltu.kitting.util
+
+import spock.lang.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import se.ltu.kitting.test.LayoutExamples;
+
+class SolverFactoriesTest extends Specification {
+
+  def "the same factory should be returned for the same XML config"() {
+    expect:
+      SolverFactories.factory("unified.xml").is(SolverFactories.factory("unified.xml"))
+  }
+
+  def "each call should build a new solver"() {
+    expect:
+      !SolverFactories.solver("unified.xml").is(SolverFactories.solver("unified.xml"))
+  }
+
+  def "modifying a returned config should not affect later configs"() {
+    given:
+      def config = SolverFactories.config("unified.xml")
+      def limit = config.getTerminationConfig().getSecondsSpentLimit()
+    when:
+      config.getTerminationConfig().setSecondsSpentLimit(limit + 1)
+    then:
+      SolverFactories.config("unified.xml").getTerminationConfig().getSecondsSpentLimit() == limit
+  }
+
+  def "the same factory should be returned for the same config instance"() {
+    given:
+      def config = SolverFactories.config("unified.xml")
+    expect:
+      SolverFactories.factory(config).is(SolverFactories.factory(config))
+      !SolverFactories.factory(config).is(SolverFactories.factory(SolverFactories.config("unified.xml")))
+  }
+
+  def "only the most recently used config factories should be kept"() {
+    given:
+      def first = SolverFactories.config("unified.xml")
+      def factory = SolverFactories.factory(first)
+    when:
+      SolverFactories.configCapacity.times { SolverFactories.factory(SolverFactories.config("unified.xml")) }
+    then:
+      !SolverFactories.factory(first).is(factory)
+  }
+
+  def "solvers from a shared factory should work concurrently"() {
+    given:
+      def layout = LayoutExamples.layouts(3).get(0)._2
+      def config = SolverFactories.config("unified.xml")
+      config.getTerminationConfig().setSecondsSpentLimit(2)
+      def pool = Executors.newFixedThreadPool(3)
+    when:
+      def solved = (1..3).collect { pool.submit({ SolverFactories.solver(config).solve(layout) } as Callable) }*.get()
+    then:
+      solved.every { Util.allVariablesInitialized(it) }
+    cleanup:
+      pool.shutdown()
+  }
+
+}
@@ -0,0 +1,38 @@
+package se.ltu.kitting.util
+
+import spock.lang.*;
+import se.ltu.kitting.test.LayoutExamples;
+
+class SolverTelemetryTest extends Specification {
+
+  def "phases should be named after the config"() {
+    given:
+      def config = SolverFactories.config("unified.xml")
+      def names = SolverTelemetry.phaseNames(config)
+    expect:
+      names.size() == config.getPhaseConfigList().size()
+      names.any { it.startsWith("LocalSearch") }
+  }
+
+  def "each phase of a solve should be recorded"() {
+    given:
+      def layout = LayoutExamples.layouts(3).get(0)._2
+      def config = SolverFactories.config("unified.xml")
+      config.getTerminationConfig().setSecondsSpentLimit(2)
+      def solver = SolverFactories.solver(config)
+      def telemetry = SolverTelemetry.attach(solver, config)
+    when:
+      def solved = solver.solve(layout)
+      def phases = telemetry.phases()
+    then:
+      // The solver may terminate early (e.g. when the score is perfect).
+      !phases.isEmpty()
+      phases*.name == SolverTelemetry.phaseNames(config).take(phases.size())
+      phases*.index == (0..<phases.size()).toList()
+      phases.every { it.durationMillis >= 0 && it.scoreCalculations >= 0 && it.bestScore != null }
+      phases.last().bestScore == solved.getScore()
+      phases.findAll { it.name.startsWith("LocalSearch") }.every { it.moves > 0 }
+      telemetry.timeToFeasibleMillis().isPresent() == solved.isFeasibleSolution()
+  }
+
+}